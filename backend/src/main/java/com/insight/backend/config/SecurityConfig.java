@@ -1,13 +1,11 @@
 package com.insight.backend.config;
 
 import com.insight.backend.security.JwtAuthenticationFilter;
-import com.insight.backend.security.JwtUtil;
-import com.insight.backend.security.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -25,23 +23,14 @@ import java.util.Arrays;
 @EnableWebSecurity
 public class SecurityConfig {
     
-    @Autowired
-    private UserDetailsServiceImpl userDetailsService;
-    
-    @Autowired
-    private JwtUtil jwtUtil;
+    @Value("${auth.bcrypt.strength:10}")
+    private int bcryptStrength;
     
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
     
-    @Bean
-    public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
-        return config.getAuthenticationManager();
-    }
-    
-    
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
     
@@ -52,9 +41,11 @@ public class SecurityConfig {
             .and()
             .authorizeRequests()
             .antMatchers("/api/auth/**").permitAll()
-            .antMatchers("/api/posts").permitAll()
-            .antMatchers("/api/posts/**").permitAll()
+            .antMatchers(HttpMethod.GET, "/api/posts").permitAll()
+            .antMatchers(HttpMethod.GET, "/api/posts/**").permitAll()
             .antMatchers("/api/users/leaderboard").permitAll()
+            .antMatchers("/api/users/leaderboard/**").permitAll()
+            .antMatchers("/api/autocomplete").permitAll()
             .anyRequest().authenticated()
             .and()
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
@@ -1,92 +1,156 @@
 package com.insight.backend.controller;
 
+import com.insight.backend.dto.LeaderboardEntry;
 import com.insight.backend.dto.LoginRequest;
 import com.insight.backend.dto.RegisterRequest;
 import com.insight.backend.model.User;
 import com.insight.backend.security.JwtUtil;
+import com.insight.backend.security.TokenCache;
+import com.insight.backend.service.LeaderboardService;
+import com.insight.backend.service.PasswordHashingService;
 import com.insight.backend.service.UserService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = "http://localhost:3000")
 public class AuthController {
     
-    @Autowired
-    private AuthenticationManager authenticationManager;
-    
     @Autowired
     private UserService userService;
     
     @Autowired
     private JwtUtil jwtUtil;
     
+    @Autowired
+    private TokenCache tokenCache;
+    
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+    
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody RegisterRequest registerRequest) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody RegisterRequest registerRequest) {
         try {
-            User user = userService.createUser(
+            return userService.createUser(
                 registerRequest.getUsername(),
                 registerRequest.getEmail(),
                 registerRequest.getPassword()
-            );
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "User registered successfully");
-            response.put("userId", user.getId());
-            response.put("username", user.getUsername());
-            
-            return ResponseEntity.ok(response);
+            ).<ResponseEntity<?>>thenApply(user -> {
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "User registered successfully");
+                response.put("userId", user.getId());
+                response.put("username", user.getUsername());
+                return ResponseEntity.ok(response);
+            }).exceptionally(e -> {
+                Throwable cause = unwrap(e);
+                if (cause instanceof DataIntegrityViolationException) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Username or email already exists");
+                    return ResponseEntity.badRequest().body(error);
+                }
+                return rejectedOrRethrow(cause);
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(hashingBusy());
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
-            return ResponseEntity.badRequest().body(error);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(error));
         }
     }
     
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@RequestBody LoginRequest loginRequest) {
+        try {
+            return userService.authenticate(loginRequest.getUsername(), loginRequest.getPassword())
+                .<ResponseEntity<?>>thenApply(user -> user != null ? loginResponse(user) : invalidCredentials())
+                .exceptionally(e -> rejectedOrRethrow(unwrap(e)));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(hashingBusy());
+        }
+    }
+    
+    private ResponseEntity<?> loginResponse(User user) {
+        String token = jwtUtil.generateToken(user.getUsername(), user.getId());
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", token);
+        Map<String, Object> userMap = new HashMap<>();
+        userMap.put("id", user.getId());
+        userMap.put("username", user.getUsername());
+        userMap.put("email", user.getEmail());
+        LeaderboardEntry standing = leaderboardService.getEntry(user.getId());
+        userMap.put("totalScore", standing != null ? standing.getScore() : user.getTotalScore());
+        userMap.put("rank", standing != null ? standing.getRank() : user.getRank());
+        userMap.put("postsCount", user.getPostsCount());
+        response.put("user", userMap);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    private ResponseEntity<?> invalidCredentials() {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Invalid username or password");
+        return ResponseEntity.badRequest().body(error);
+    }
+    
+    /**
+     * Answers a refused hand-off with 503 and lets any other failure reach the error handler.
+     */
+    private ResponseEntity<?> rejectedOrRethrow(Throwable cause) {
+        if (cause instanceof RejectedExecutionException) {
+            return hashingBusy();
+        }
+        throw cause instanceof CompletionException ? (CompletionException) cause : new CompletionException(cause);
+    }
+    
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+    
+    private ResponseEntity<?> hashingBusy() {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Too many sign-in requests, please retry shortly");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(passwordHashingService.retryAfterSeconds()))
+            .body(error);
+    }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorizationHeader) {
+        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Missing token");
+            return ResponseEntity.badRequest().body(error);
+        }
+        String token = authorizationHeader.substring(7);
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                    loginRequest.getUsername(),
-                    loginRequest.getPassword()
-                )
-            );
-            
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            
-            User user = userService.findByUsername(loginRequest.getUsername())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            String token = jwtUtil.generateToken(userDetails.getUsername(), user.getId());
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("token", token);
-            Map<String, Object> userMap = new HashMap<>();
-            userMap.put("id", user.getId());
-            userMap.put("username", user.getUsername());
-            userMap.put("email", user.getEmail());
-            userMap.put("totalScore", user.getTotalScore());
-            userMap.put("rank", user.getRank());
-            userMap.put("postsCount", user.getPostsCount());
-            response.put("user", userMap);
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
+            Claims claims = jwtUtil.extractAllClaims(token);
+            tokenCache.revoke(TokenCache.hash(token), claims.getExpiration().getTime());
+        } catch (JwtException | IllegalArgumentException e) {
             Map<String, String> error = new HashMap<>();
-            error.put("error", "Invalid username or password");
+            error.put("error", "Invalid token");
             return ResponseEntity.badRequest().body(error);
         }
+        
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Logged out");
+        return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.insight.backend.controller;
+
+import com.insight.backend.service.AutocompleteService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/autocomplete")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AutocompleteController {
+    
+    @Autowired
+    private AutocompleteService autocompleteService;
+    
+    @GetMapping
+    public ResponseEntity<?> autocomplete(@RequestParam String prefix,
+                                          @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(autocompleteService.complete(prefix, limit));
+    }
+}
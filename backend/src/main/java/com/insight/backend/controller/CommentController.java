@@ -1,8 +1,15 @@
 package com.insight.backend.controller;
 
+import com.insight.backend.dto.CommentNode;
+import com.insight.backend.dto.CommentPage;
 import com.insight.backend.dto.CommentRequest;
-import com.insight.backend.model.Comment;
+import com.insight.backend.dto.CommentVoteResult;
+import com.insight.backend.dto.VoteRequest;
+import com.insight.backend.model.VoteType;
+import com.insight.backend.security.AuthenticatedUser;
+import com.insight.backend.security.CurrentUser;
 import com.insight.backend.service.CommentService;
+import com.insight.backend.service.ResourceVersions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,18 +26,19 @@ public class CommentController {
     @Autowired
     private CommentService commentService;
     
+    @Autowired
+    private ResourceVersions resourceVersions;
+    
     @PostMapping
     public ResponseEntity<?> createComment(@RequestBody CommentRequest commentRequest,
                                          @RequestParam Long postId,
-                                         @RequestHeader("Authorization") String token) {
+                                         @CurrentUser AuthenticatedUser currentUser) {
         try {
-            String jwt = token.substring(7);
-            Long userId = 1L;
-            
-            Comment comment = commentService.createComment(
+            CommentNode comment = commentService.createComment(
                 commentRequest.getContent(),
                 postId,
-                userId,
+                currentUser.getId(),
+                currentUser.getUsername(),
                 commentRequest.getParentCommentId()
             );
             
@@ -45,15 +53,76 @@ public class CommentController {
         }
     }
     
+    @PostMapping("/{commentId}/vote")
+    public ResponseEntity<?> voteOnComment(@PathVariable Long commentId,
+                                           @RequestBody VoteRequest voteRequest,
+                                           @CurrentUser AuthenticatedUser currentUser) {
+        try {
+            VoteType voteType = VoteType.valueOf(voteRequest.getType().toUpperCase());
+            
+            CommentVoteResult result = commentService.voteOnComment(commentId, currentUser.getId(), voteType);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Vote recorded successfully");
+            response.put("commentId", result.getCommentId());
+            response.put("score", result.getScore());
+            response.put("upCount", result.getUpCount());
+            response.put("downCount", result.getDownCount());
+            response.put("userVote", result.getUserVote());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
     @GetMapping("/post/{postId}")
-    public ResponseEntity<List<Comment>> getCommentsByPost(@PathVariable Long postId) {
-        List<Comment> comments = commentService.getCommentsByPost(postId);
-        return ResponseEntity.ok(comments);
+    public ResponseEntity<List<CommentNode>> getCommentsByPost(@PathVariable Long postId,
+                                                           @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        String etag = resourceVersions.commentsTag(postId);
+        if (ConditionalResponses.matches(etag, ifNoneMatch)) {
+            return ConditionalResponses.notModified(etag);
+        }
+        
+        List<CommentNode> thread = commentService.getThread(postId);
+        return ResponseEntity.ok().eTag(etag).body(thread);
+    }
+    
+    @GetMapping("/post/{postId}/thread")
+    public ResponseEntity<?> getThreadPage(@PathVariable Long postId,
+                                           @RequestParam(defaultValue = CommentService.SORT_NEW) String sort,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "20") int limit,
+                                           @RequestParam(defaultValue = "3") int replies) {
+        try {
+            CommentPage page = commentService.getThreadPage(postId, sort, cursor, limit, replies);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/{commentId}/thread")
+    public ResponseEntity<?> getRepliesPage(@PathVariable Long commentId,
+                                            @RequestParam(defaultValue = CommentService.SORT_NEW) String sort,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            CommentPage page = commentService.getRepliesPage(commentId, sort, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
     }
     
     @GetMapping("/{commentId}/replies")
-    public ResponseEntity<List<Comment>> getReplies(@PathVariable Long commentId) {
-        List<Comment> replies = commentService.getReplies(commentId);
+    public ResponseEntity<List<CommentNode>> getReplies(@PathVariable Long commentId) {
+        List<CommentNode> replies = commentService.getReplies(commentId);
         return ResponseEntity.ok(replies);
     }
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.insight.backend.controller;
+
+import com.insight.backend.dto.JsonSnapshot;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+final class ConditionalResponses {
+
+    private ConditionalResponses() {}
+
+    static ResponseEntity<byte[]> serve(JsonSnapshot snapshot, String ifNoneMatch) {
+        if (matches(snapshot.getEtag(), ifNoneMatch)) {
+            return notModified(snapshot.getEtag());
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .contentLength(snapshot.getBody().length)
+            .eTag(snapshot.getEtag())
+            .body(snapshot.getBody());
+    }
+
+    static boolean matches(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+}
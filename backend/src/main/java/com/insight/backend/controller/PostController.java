@@ -1,10 +1,18 @@
 package com.insight.backend.controller;
 
+import com.insight.backend.dto.FeedPage;
 import com.insight.backend.dto.PostRequest;
+import com.insight.backend.dto.PostSummary;
 import com.insight.backend.dto.VoteRequest;
-import com.insight.backend.model.Post;
+import com.insight.backend.dto.VoteResult;
 import com.insight.backend.model.VoteType;
+import com.insight.backend.security.AuthenticatedUser;
+import com.insight.backend.security.CurrentUser;
+import com.insight.backend.service.FeedService;
 import com.insight.backend.service.PostService;
+import com.insight.backend.service.ResourceVersions;
+import com.insight.backend.service.SearchService;
+import com.insight.backend.service.SnapshotPublisher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,22 +29,51 @@ public class PostController {
     @Autowired
     private PostService postService;
     
+    @Autowired
+    private FeedService feedService;
+    
+    @Autowired
+    private SnapshotPublisher snapshotPublisher;
+    
+    @Autowired
+    private SearchService searchService;
+    
+    @Autowired
+    private ResourceVersions resourceVersions;
+    
     @GetMapping
-    public ResponseEntity<List<Post>> getAllPosts() {
-        List<Post> posts = postService.getAllPosts();
-        return ResponseEntity.ok(posts);
+    public ResponseEntity<?> getAllPosts(@RequestParam(defaultValue = FeedService.SORT_TOP) String sort,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "20") int limit,
+                                         @RequestParam(required = false) List<String> tags,
+                                         @RequestParam(defaultValue = "all") String match,
+                                         @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        boolean hotFeed = FeedService.SORT_HOT.equals(sort) && (tags == null || tags.isEmpty());
+        String etag = hotFeed ? resourceVersions.hotTag() : resourceVersions.postsTag();
+        if (ConditionalResponses.matches(etag, ifNoneMatch)) {
+            return ConditionalResponses.notModified(etag);
+        }
+        
+        try {
+            FeedPage page = tags != null && !tags.isEmpty()
+                ? feedService.getTaggedFeed(tags, !"any".equalsIgnoreCase(match), cursor, limit)
+                : feedService.getFeed(sort, cursor, limit);
+            return ResponseEntity.ok().eTag(etag).body(page);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
     }
     
     @PostMapping
-    public ResponseEntity<?> createPost(@RequestBody PostRequest postRequest, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<?> createPost(@RequestBody PostRequest postRequest, @CurrentUser AuthenticatedUser currentUser) {
         try {
-            String jwt = token.substring(7);
-            Long userId = extractUserIdFromToken(jwt);
-            
-            Post post = postService.createPost(
+            PostSummary post = postService.createPost(
                 postRequest.getTitle(),
                 postRequest.getContent(),
-                userId,
+                currentUser.getId(),
+                currentUser.getUsername(),
                 postRequest.getTags()
             );
             
@@ -54,18 +91,17 @@ public class PostController {
     @PostMapping("/{postId}/vote")
     public ResponseEntity<?> voteOnPost(@PathVariable Long postId, 
                                        @RequestBody VoteRequest voteRequest,
-                                       @RequestHeader("Authorization") String token) {
+                                       @CurrentUser AuthenticatedUser currentUser) {
         try {
-            String jwt = token.substring(7);
-            Long userId = extractUserIdFromToken(jwt);
-            
             VoteType voteType = VoteType.valueOf(voteRequest.getType().toUpperCase());
             
-            Post post = postService.voteOnPost(postId, userId, voteType);
+            VoteResult result = postService.voteOnPost(postId, currentUser.getId(), voteType);
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Vote recorded successfully");
-            response.put("post", post);
+            response.put("postId", result.getPostId());
+            response.put("score", result.getScore());
+            response.put("userVote", result.getUserVote());
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
@@ -74,13 +110,31 @@ public class PostController {
         }
     }
     
-    @GetMapping("/top")
-    public ResponseEntity<List<Post>> getTopPosts(@RequestParam(defaultValue = "10") int limit) {
-        List<Post> posts = postService.getTopPosts(limit);
-        return ResponseEntity.ok(posts);
+    @GetMapping("/search")
+    public ResponseEntity<?> searchPosts(@RequestParam String q,
+                                         @RequestParam(defaultValue = "0") int offset,
+                                         @RequestParam(defaultValue = "20") int limit) {
+        if (q.trim().isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Query must not be empty");
+            return ResponseEntity.badRequest().body(error);
+        }
+        return ResponseEntity.ok(searchService.search(q, offset, limit));
     }
     
-    private Long extractUserIdFromToken(String token) {
-        return 1L;
+    @GetMapping("/top")
+    public ResponseEntity<?> getTopPosts(@RequestParam(defaultValue = "10") int limit,
+                                         @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        if (limit == snapshotPublisher.getTopPostsSize()) {
+            return ConditionalResponses.serve(snapshotPublisher.getTopPosts(), ifNoneMatch);
+        }
+        
+        String etag = resourceVersions.postsTag();
+        if (ConditionalResponses.matches(etag, ifNoneMatch)) {
+            return ConditionalResponses.notModified(etag);
+        }
+        
+        List<PostSummary> posts = postService.getTopPosts(limit);
+        return ResponseEntity.ok().eTag(etag).body(posts);
     }
 }
\ No newline at end of file
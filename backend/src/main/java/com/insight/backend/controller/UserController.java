@@ -1,47 +1,144 @@
 package com.insight.backend.controller;
 
+import com.insight.backend.dto.LeaderboardEntry;
 import com.insight.backend.model.User;
+import com.insight.backend.service.DailyLeaderboardService;
+import com.insight.backend.service.LeaderboardService;
+import com.insight.backend.service.RankHistoryService;
+import com.insight.backend.service.ResourceVersions;
+import com.insight.backend.service.SnapshotPublisher;
 import com.insight.backend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/users")
 @CrossOrigin(origins = "http://localhost:3000")
 public class UserController {
     
+    private static final int MAX_WINDOW_RADIUS = 50;
+    private static final int MAX_LEADERBOARD_LIMIT = 100;
+    
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
+    @Autowired
+    private DailyLeaderboardService dailyLeaderboardService;
+    
+    @Autowired
+    private RankHistoryService rankHistoryService;
+    
+    @Autowired
+    private SnapshotPublisher snapshotPublisher;
+    
+    @Autowired
+    private ResourceVersions resourceVersions;
+    
     @GetMapping("/leaderboard")
-    public ResponseEntity<?> getLeaderboard(@RequestParam(defaultValue = "10") int limit) {
-        List<User> topUsers = userService.getTopUsers(limit);
+    public ResponseEntity<?> getLeaderboard(@RequestParam(defaultValue = "10") int limit,
+                                            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        limit = Math.max(1, Math.min(limit, MAX_LEADERBOARD_LIMIT));
+        if (limit == snapshotPublisher.getLeaderboardSize()) {
+            return ConditionalResponses.serve(snapshotPublisher.getLeaderboard(), ifNoneMatch);
+        }
+        
+        String etag = resourceVersions.leaderboardTag();
+        if (ConditionalResponses.matches(etag, ifNoneMatch)) {
+            return ConditionalResponses.notModified(etag);
+        }
         
-        List<Map<String, Object>> leaderboardEntries = topUsers.stream()
-            .map(user -> {
-                Map<String, Object> userMap = new HashMap<>();
-                userMap.put("userId", user.getId());
-                userMap.put("username", user.getUsername());
-                userMap.put("avatar", user.getAvatar());
-                userMap.put("score", user.getTotalScore());
-                userMap.put("rank", user.getRank());
-                userMap.put("postsCount", user.getPostsCount());
-                return userMap;
-            })
-            .collect(Collectors.toList());
+        List<LeaderboardEntry> leaderboardEntries = leaderboardService.getTopEntries(limit);
+        
+        Map<String, Object> leaderboardResponse = new HashMap<>();
+        leaderboardResponse.put("leaderboard", leaderboardEntries);
+        leaderboardResponse.put("totalUsers", leaderboardEntries.size());
+        return ResponseEntity.ok().eTag(etag).body(leaderboardResponse);
+    }
+    
+    @GetMapping("/leaderboard/today")
+    public ResponseEntity<?> getTodayLeaderboard(@RequestParam(defaultValue = "10") int limit) {
+        return getDailyLeaderboard(dailyLeaderboardService.getCurrentDay(), limit);
+    }
+    
+    @GetMapping("/leaderboard/yesterday")
+    public ResponseEntity<?> getYesterdayLeaderboard(@RequestParam(defaultValue = "10") int limit) {
+        return getDailyLeaderboard(dailyLeaderboardService.getCurrentDay().minusDays(1), limit);
+    }
+    
+    @GetMapping("/leaderboard/daily/{date}")
+    public ResponseEntity<?> getDailyLeaderboard(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                 @RequestParam(defaultValue = "10") int limit) {
+        List<LeaderboardEntry> leaderboardEntries = dailyLeaderboardService.getDay(date, limit);
+        if (leaderboardEntries == null) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "No leaderboard kept for " + date);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
         
         Map<String, Object> leaderboardResponse = new HashMap<>();
+        leaderboardResponse.put("date", date.toString());
         leaderboardResponse.put("leaderboard", leaderboardEntries);
         leaderboardResponse.put("totalUsers", leaderboardEntries.size());
         return ResponseEntity.ok(leaderboardResponse);
     }
     
+    @GetMapping("/{userId}/leaderboard-window")
+    public ResponseEntity<?> getLeaderboardWindow(@PathVariable Long userId,
+                                                  @RequestParam(defaultValue = "5") int radius) {
+        if (radius < 0 || radius > MAX_WINDOW_RADIUS) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "radius must be between 0 and " + MAX_WINDOW_RADIUS);
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        List<LeaderboardEntry> window = leaderboardService.getWindow(userId, radius);
+        if (window == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        Map<String, Object> windowResponse = new HashMap<>();
+        windowResponse.put("userId", userId);
+        for (LeaderboardEntry entry : window) {
+            if (entry.getUserId().equals(userId)) {
+                windowResponse.put("rank", entry.getRank());
+            }
+        }
+        windowResponse.put("leaderboard", window);
+        windowResponse.put("totalUsers", leaderboardService.getUserCount());
+        return ResponseEntity.ok(windowResponse);
+    }
+    
+    @GetMapping("/{userId}/rank-history")
+    public ResponseEntity<?> getRankHistory(@PathVariable Long userId,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (start.isAfter(end)) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "from must not be after to");
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        Map<String, Object> historyResponse = new HashMap<>();
+        historyResponse.put("userId", userId);
+        historyResponse.put("from", start.toString());
+        historyResponse.put("to", end.toString());
+        historyResponse.put("history", rankHistoryService.getHistory(userId, start, end));
+        return ResponseEntity.ok(historyResponse);
+    }
+    
     @GetMapping("/{userId}/profile")
     public ResponseEntity<?> getUserProfile(@PathVariable Long userId) {
         try {
@@ -55,8 +152,9 @@ public class UserController {
             profile.put("username", user.getUsername());
             profile.put("email", user.getEmail());
             profile.put("avatar", user.getAvatar());
-            profile.put("totalScore", user.getTotalScore());
-            profile.put("rank", user.getRank());
+            LeaderboardEntry standing = leaderboardService.getEntry(user.getId());
+            profile.put("totalScore", standing != null ? standing.getScore() : user.getTotalScore());
+            profile.put("rank", standing != null ? standing.getRank() : user.getRank());
             profile.put("postsCount", user.getPostsCount());
             profile.put("joinedAt", user.getJoinedAt());
             profile.put("achievements", user.getAchievements());
@@ -0,0 +1,6 @@
+package com.insight.backend.dto;
+
+public interface AuthorScore {
+    Long getUserId();
+    Long getScore();
+}
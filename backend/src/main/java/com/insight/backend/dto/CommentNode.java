@@ -0,0 +1,85 @@
+package com.insight.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One comment of an assembled thread, with its replies nested in creation order.
+ */
+public class CommentNode {
+
+    public static class Author {
+        private final Long id;
+        private final String username;
+
+        public Author(Long id, String username) {
+            this.id = id;
+            this.username = username;
+        }
+
+        public Long getId() { return id; }
+
+        public String getUsername() { return username; }
+    }
+
+    private final Long id;
+    private final Long parentCommentId;
+    private final String content;
+    private final Integer score;
+    private final LocalDateTime createdAt;
+    private final Author user;
+    private final String path;
+    private List<CommentNode> replies = new ArrayList<>();
+    private Long replyCount;
+    private String moreRepliesCursor;
+
+    public CommentNode(Long id, Long parentCommentId, String content, Integer score, LocalDateTime createdAt,
+                       Long authorId, String authorUsername, String path) {
+        this.id = id;
+        this.parentCommentId = parentCommentId;
+        this.content = content;
+        this.score = score == null ? 0 : score;
+        this.createdAt = createdAt;
+        this.user = new Author(authorId, authorUsername);
+        this.path = path;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getParentCommentId() { return parentCommentId; }
+
+    public String getContent() { return content; }
+
+    public Integer getScore() { return score; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public Author getUser() { return user; }
+
+    @JsonIgnore
+    public String getPath() { return path; }
+
+    public List<CommentNode> getReplies() { return replies; }
+
+    public void setReplies(List<CommentNode> replies) { this.replies = replies; }
+
+    /**
+     * Size of the whole reply subtree, set on the top-level comments of a thread page.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Long getReplyCount() { return replyCount; }
+
+    public void setReplyCount(Long replyCount) { this.replyCount = replyCount; }
+
+    /**
+     * Cursor for the replies left out of a thread page, null once all are loaded.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getMoreRepliesCursor() { return moreRepliesCursor; }
+
+    public void setMoreRepliesCursor(String moreRepliesCursor) { this.moreRepliesCursor = moreRepliesCursor; }
+}
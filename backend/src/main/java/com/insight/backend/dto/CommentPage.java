@@ -0,0 +1,17 @@
+package com.insight.backend.dto;
+
+import java.util.List;
+
+public class CommentPage {
+    private final List<CommentNode> comments;
+    private final String nextCursor;
+
+    public CommentPage(List<CommentNode> comments, String nextCursor) {
+        this.comments = comments;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<CommentNode> getComments() { return comments; }
+
+    public String getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,31 @@
+package com.insight.backend.dto;
+
+import com.insight.backend.model.VoteType;
+
+public class CommentVoteResult {
+    private final Long commentId;
+    private final Long postId;
+    private final int upCount;
+    private final int downCount;
+    private final VoteType userVote;
+
+    public CommentVoteResult(Long commentId, Long postId, int upCount, int downCount, VoteType userVote) {
+        this.commentId = commentId;
+        this.postId = postId;
+        this.upCount = upCount;
+        this.downCount = downCount;
+        this.userVote = userVote;
+    }
+
+    public Long getCommentId() { return commentId; }
+
+    public Long getPostId() { return postId; }
+
+    public int getUpCount() { return upCount; }
+
+    public int getDownCount() { return downCount; }
+
+    public int getScore() { return upCount - downCount; }
+
+    public VoteType getUserVote() { return userVote; }
+}
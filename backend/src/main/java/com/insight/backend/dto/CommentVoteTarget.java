@@ -0,0 +1,8 @@
+package com.insight.backend.dto;
+
+import com.insight.backend.model.VoteType;
+
+public interface CommentVoteTarget {
+    Long getPostId();
+    VoteType getCurrentVote();
+}
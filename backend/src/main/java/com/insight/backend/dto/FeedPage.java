@@ -0,0 +1,29 @@
+package com.insight.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+public class FeedPage {
+    private final List<PostSummary> posts;
+    private final String nextCursor;
+    private final Map<String, Integer> facets;
+
+    public FeedPage(List<PostSummary> posts, String nextCursor) {
+        this(posts, nextCursor, null);
+    }
+
+    public FeedPage(List<PostSummary> posts, String nextCursor, Map<String, Integer> facets) {
+        this.posts = posts;
+        this.nextCursor = nextCursor;
+        this.facets = facets;
+    }
+
+    public List<PostSummary> getPosts() { return posts; }
+
+    public String getNextCursor() { return nextCursor; }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String, Integer> getFacets() { return facets; }
+}
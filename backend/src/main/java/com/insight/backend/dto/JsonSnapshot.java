@@ -0,0 +1,22 @@
+package com.insight.backend.dto;
+
+/**
+ * A response body rendered once and served as-is until the data behind it changes.
+ */
+public class JsonSnapshot {
+    private final long version;
+    private final byte[] body;
+    private final String etag;
+
+    public JsonSnapshot(long version, byte[] body, String etag) {
+        this.version = version;
+        this.body = body;
+        this.etag = etag;
+    }
+
+    public long getVersion() { return version; }
+
+    public byte[] getBody() { return body; }
+
+    public String getEtag() { return etag; }
+}
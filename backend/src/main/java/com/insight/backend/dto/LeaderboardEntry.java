@@ -0,0 +1,43 @@
+package com.insight.backend.dto;
+
+public class LeaderboardEntry {
+    private final Long userId;
+    private final String username;
+    private final String avatar;
+    private final Integer score;
+    private final Integer rank;
+    private final Integer postsCount;
+
+    public LeaderboardEntry(Long userId, String username, String avatar, Integer score, Integer rank, Integer postsCount) {
+        this.userId = userId;
+        this.username = username;
+        this.avatar = avatar;
+        this.score = score == null ? 0 : score;
+        this.rank = rank == null ? 0 : rank;
+        this.postsCount = postsCount == null ? 0 : postsCount;
+    }
+
+    public LeaderboardEntry withScore(int score) {
+        return new LeaderboardEntry(userId, username, avatar, score, rank, postsCount);
+    }
+
+    public LeaderboardEntry withRank(int rank) {
+        return new LeaderboardEntry(userId, username, avatar, score, rank, postsCount);
+    }
+
+    public LeaderboardEntry withPostsCount(int postsCount) {
+        return new LeaderboardEntry(userId, username, avatar, score, rank, postsCount);
+    }
+
+    public Long getUserId() { return userId; }
+
+    public String getUsername() { return username; }
+
+    public String getAvatar() { return avatar; }
+
+    public Integer getScore() { return score; }
+
+    public Integer getRank() { return rank; }
+
+    public Integer getPostsCount() { return postsCount; }
+}
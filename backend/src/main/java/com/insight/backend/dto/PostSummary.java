@@ -0,0 +1,50 @@
+package com.insight.backend.dto;
+
+import java.time.LocalDateTime;
+
+public class PostSummary {
+    private final Long id;
+    private final String title;
+    private final Integer score;
+    private final LocalDateTime createdAt;
+    private final Long authorId;
+    private final String authorUsername;
+    private final Integer commentCount;
+    private final Integer upCount;
+    private final Integer downCount;
+
+    public PostSummary(Long id, String title, Integer score, LocalDateTime createdAt, Long authorId, String authorUsername,
+                       Integer commentCount, Integer upCount, Integer downCount) {
+        this.id = id;
+        this.title = title;
+        this.score = score == null ? 0 : score;
+        this.createdAt = createdAt;
+        this.authorId = authorId;
+        this.authorUsername = authorUsername;
+        this.commentCount = commentCount == null ? 0 : commentCount;
+        this.upCount = upCount == null ? 0 : upCount;
+        this.downCount = downCount == null ? 0 : downCount;
+    }
+
+    public PostSummary withScore(int score) {
+        return new PostSummary(id, title, score, createdAt, authorId, authorUsername, commentCount, upCount, downCount);
+    }
+
+    public Long getId() { return id; }
+
+    public String getTitle() { return title; }
+
+    public Integer getScore() { return score; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public Long getAuthorId() { return authorId; }
+
+    public String getAuthorUsername() { return authorUsername; }
+
+    public Integer getCommentCount() { return commentCount; }
+
+    public Integer getUpCount() { return upCount; }
+
+    public Integer getDownCount() { return downCount; }
+}
@@ -0,0 +1,21 @@
+package com.insight.backend.dto;
+
+import java.time.LocalDate;
+
+public class RankHistoryPoint {
+    private final LocalDate date;
+    private final Integer rank;
+    private final Integer score;
+
+    public RankHistoryPoint(LocalDate date, Integer rank, Integer score) {
+        this.date = date;
+        this.rank = rank;
+        this.score = score;
+    }
+
+    public LocalDate getDate() { return date; }
+
+    public Integer getRank() { return rank; }
+
+    public Integer getScore() { return score; }
+}
@@ -0,0 +1,21 @@
+package com.insight.backend.dto;
+
+import java.util.List;
+
+public class SearchPage {
+    private final List<PostSummary> posts;
+    private final int total;
+    private final Integer nextOffset;
+
+    public SearchPage(List<PostSummary> posts, int total, Integer nextOffset) {
+        this.posts = posts;
+        this.total = total;
+        this.nextOffset = nextOffset;
+    }
+
+    public List<PostSummary> getPosts() { return posts; }
+
+    public int getTotal() { return total; }
+
+    public Integer getNextOffset() { return nextOffset; }
+}
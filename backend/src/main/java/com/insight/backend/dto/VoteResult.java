@@ -0,0 +1,41 @@
+package com.insight.backend.dto;
+
+import com.insight.backend.model.VoteType;
+
+public class VoteResult {
+    private final Long postId;
+    private final Long authorId;
+    private final int score;
+    private final int scoreChange;
+    private final VoteType userVote;
+    private final int upChange;
+    private final int downChange;
+
+    public VoteResult(Long postId, Long authorId, int score, int scoreChange, VoteType userVote, int upChange, int downChange) {
+        this.postId = postId;
+        this.authorId = authorId;
+        this.score = score;
+        this.scoreChange = scoreChange;
+        this.userVote = userVote;
+        this.upChange = upChange;
+        this.downChange = downChange;
+    }
+
+    public VoteResult withScore(int score) {
+        return new VoteResult(postId, authorId, score, scoreChange, userVote, upChange, downChange);
+    }
+
+    public Long getPostId() { return postId; }
+
+    public Long getAuthorId() { return authorId; }
+
+    public int getScore() { return score; }
+
+    public int getScoreChange() { return scoreChange; }
+
+    public VoteType getUserVote() { return userVote; }
+
+    public int getUpChange() { return upChange; }
+
+    public int getDownChange() { return downChange; }
+}
@@ -0,0 +1,9 @@
+package com.insight.backend.dto;
+
+import com.insight.backend.model.VoteType;
+
+public interface VoteTarget {
+    Long getAuthorId();
+    Integer getScore();
+    VoteType getCurrentVote();
+}
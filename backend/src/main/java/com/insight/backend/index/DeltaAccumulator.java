@@ -0,0 +1,82 @@
+package com.insight.backend.index;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free per-key delta accumulator. Writers add to a per-key atomic cell; a single
+ * drainer swaps cells to zero and retires idle ones. Drained deltas stay visible through
+ * {@link #pending(long)} until they are confirmed with {@link #complete(Map)}.
+ */
+public class DeltaAccumulator {
+
+    private final ConcurrentHashMap<Long, AtomicLong> cells = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> inFlight = new ConcurrentHashMap<>();
+
+    public void add(long key, long delta) {
+        while (delta != 0) {
+            AtomicLong cell = cells.get(key);
+            if (cell == null) {
+                AtomicLong created = new AtomicLong();
+                cell = cells.putIfAbsent(key, created);
+                if (cell == null) {
+                    cell = created;
+                }
+            }
+            cell.addAndGet(delta);
+            if (cells.get(key) == cell) {
+                return;
+            }
+            // the cell was retired by a concurrent drain, move whatever it still holds
+            delta = cell.getAndSet(0);
+        }
+    }
+
+    public long pending(long key) {
+        AtomicLong cell = cells.get(key);
+        Long flushing = inFlight.get(key);
+        return (cell == null ? 0 : cell.get()) + (flushing == null ? 0 : flushing);
+    }
+
+    public int size() {
+        return cells.size();
+    }
+
+    /**
+     * Takes every non-zero delta out of the accumulator. Must not be called concurrently
+     * with itself.
+     */
+    public Map<Long, Long> drain() {
+        Map<Long, Long> drained = new HashMap<>();
+        for (Map.Entry<Long, AtomicLong> entry : cells.entrySet()) {
+            Long key = entry.getKey();
+            AtomicLong cell = entry.getValue();
+            long value = cell.getAndSet(0);
+            if (value == 0) {
+                cells.remove(key, cell);
+                value = cell.getAndSet(0);
+            }
+            if (value != 0) {
+                inFlight.merge(key, value, Long::sum);
+                drained.merge(key, value, Long::sum);
+            }
+        }
+        return drained;
+    }
+
+    public void complete(Map<Long, Long> drained) {
+        for (Map.Entry<Long, Long> entry : drained.entrySet()) {
+            long value = entry.getValue();
+            inFlight.computeIfPresent(entry.getKey(), (key, current) -> current == value ? null : current - value);
+        }
+    }
+
+    public void restore(Map<Long, Long> drained) {
+        for (Map.Entry<Long, Long> entry : drained.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+        complete(drained);
+    }
+}
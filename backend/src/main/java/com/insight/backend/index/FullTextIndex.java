@@ -0,0 +1,313 @@
+package com.insight.backend.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Segmented full-text index with BM25 ranking. New documents go to an in-memory builder that
+ * is sealed into a segment every {@code segmentSize} documents; once {@code mergeFactor}
+ * segments of the same size class pile up they are merged into one, which also drops
+ * replaced and removed copies. A document's live copy is tracked by (segment, local number),
+ * so an update is simply a new add. Not thread-safe for writes, callers guard it.
+ */
+public class FullTextIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_BOOST = 2;
+
+    public static final class Hits {
+        private final long[] ids;
+        private final double[] scores;
+        private final int total;
+
+        Hits(long[] ids, double[] scores, int total) {
+            this.ids = ids;
+            this.scores = scores;
+            this.total = total;
+        }
+
+        public long[] getIds() { return ids; }
+
+        public double[] getScores() { return scores; }
+
+        public int getTotal() { return total; }
+    }
+
+    private static final class LiveCopy {
+        Object owner;
+        int local;
+        final int length;
+
+        LiveCopy(Object owner, int local, int length) {
+            this.owner = owner;
+            this.local = local;
+            this.length = length;
+        }
+    }
+
+    private final int segmentSize;
+    private final int mergeFactor;
+    private final List<SearchSegment> segments = new ArrayList<>();
+    private final Map<Long, LiveCopy> live = new HashMap<>();
+    private SearchSegment.Builder buffer = new SearchSegment.Builder();
+    private SearchSegment bufferView;
+    private long totalLength;
+
+    public FullTextIndex(int segmentSize, int mergeFactor) {
+        this.segmentSize = segmentSize;
+        this.mergeFactor = mergeFactor;
+    }
+
+    public int size() {
+        return live.size();
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public void add(long docId, String title, String content) {
+        remove(docId);
+        List<String> tokens = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        // leave a gap after the title so phrases cannot run from the title into the content
+        int next = TextTokenizer.tokenize(title, 0, tokens, positions);
+        int titleTokens = tokens.size();
+        TextTokenizer.tokenize(content, next + 1, tokens, positions);
+
+        int local = buffer.add(docId, tokens, positions, titleTokens, TITLE_BOOST);
+        int length = titleTokens * TITLE_BOOST + tokens.size() - titleTokens;
+        live.put(docId, new LiveCopy(buffer, local, length));
+        totalLength += length;
+        synchronized (this) {
+            bufferView = null;
+        }
+        if (buffer.docCount() >= segmentSize) {
+            flush();
+        }
+    }
+
+    public boolean remove(long docId) {
+        LiveCopy copy = live.remove(docId);
+        if (copy == null) {
+            return false;
+        }
+        totalLength -= copy.length;
+        return true;
+    }
+
+    /**
+     * Seals the buffered documents into a segment and merges segments where due.
+     */
+    public void flush() {
+        if (buffer.docCount() == 0) {
+            return;
+        }
+        SearchSegment sealed = buffer.seal();
+        for (int local = 0; local < sealed.docCount(); local++) {
+            LiveCopy copy = live.get(sealed.docId(local));
+            if (copy != null && copy.owner == buffer && copy.local == local) {
+                copy.owner = sealed;
+            }
+        }
+        segments.add(sealed);
+        buffer = new SearchSegment.Builder();
+        synchronized (this) {
+            bufferView = null;
+        }
+        while (segments.size() >= mergeFactor && sameSizeClass(segments.subList(segments.size() - mergeFactor, segments.size()))) {
+            mergeTail(mergeFactor);
+        }
+    }
+
+    /**
+     * Runs a query: plain words are scored with BM25 and any of them may match, while a
+     * "quoted phrase" must appear with its words in order. Returns hits ordered by score.
+     */
+    public Hits search(String query, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>();
+        List<List<String>> phrases = new ArrayList<>();
+        List<int[]> phraseOffsets = new ArrayList<>();
+        parseQuery(query, terms, phrases, phraseOffsets);
+        if (terms.isEmpty() || live.isEmpty()) {
+            return new Hits(new long[0], new double[0], 0);
+        }
+
+        List<SearchSegment> views = new ArrayList<>(segments);
+        List<Object> owners = new ArrayList<>(segments);
+        SearchSegment pending = bufferView();
+        if (pending != null) {
+            views.add(pending);
+            owners.add(buffer);
+        }
+
+        double averageLength = Math.max(1.0, (double) totalLength / live.size());
+        Map<String, Double> idf = new HashMap<>();
+        for (String term : terms) {
+            int df = 0;
+            for (SearchSegment view : views) {
+                SearchSegment.Postings postings = view.postings(term);
+                df += postings == null ? 0 : postings.docFrequency();
+            }
+            double n = Math.max(live.size(), df);
+            idf.put(term, Math.log(1 + (n - df + 0.5) / (df + 0.5)));
+        }
+
+        int wanted = offset + limit;
+        PriorityQueue<double[]> best = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(b[1], a[1]));
+        int total = 0;
+        for (int v = 0; v < views.size(); v++) {
+            SearchSegment view = views.get(v);
+            Object owner = owners.get(v);
+            double[] scores = new double[view.docCount()];
+            boolean[] matched = new boolean[view.docCount()];
+            for (String term : terms) {
+                SearchSegment.Postings postings = view.postings(term);
+                if (postings == null) {
+                    continue;
+                }
+                for (int k = 0; k < postings.docs.length; k++) {
+                    int local = postings.docs[k];
+                    if (!isLive(view.docId(local), owner, local)) {
+                        continue;
+                    }
+                    double tf = postings.freqs[k];
+                    double norm = K1 * (1 - B + B * view.length(local) / averageLength);
+                    scores[local] += idf.get(term) * tf * (K1 + 1) / (tf + norm);
+                    matched[local] = true;
+                }
+            }
+            for (int local = 0; local < matched.length; local++) {
+                if (!matched[local] || !containsPhrases(view, local, phrases, phraseOffsets)) {
+                    continue;
+                }
+                total++;
+                best.add(new double[] {scores[local], view.docId(local)});
+                if (best.size() > wanted) {
+                    best.poll();
+                }
+            }
+        }
+
+        double[][] ordered = new double[best.size()][];
+        for (int i = ordered.length - 1; i >= 0; i--) {
+            ordered[i] = best.poll();
+        }
+        int count = Math.max(0, ordered.length - offset);
+        long[] ids = new long[count];
+        double[] hitScores = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = (long) ordered[offset + i][1];
+            hitScores[i] = ordered[offset + i][0];
+        }
+        return new Hits(ids, hitScores, total);
+    }
+
+    private synchronized SearchSegment bufferView() {
+        if (bufferView == null && buffer.docCount() > 0) {
+            bufferView = buffer.seal();
+        }
+        return bufferView;
+    }
+
+    private boolean isLive(long docId, Object owner, int local) {
+        LiveCopy copy = live.get(docId);
+        return copy != null && copy.owner == owner && copy.local == local;
+    }
+
+    private boolean sameSizeClass(List<SearchSegment> tail) {
+        int sizeClass = sizeClass(tail.get(tail.size() - 1));
+        for (SearchSegment segment : tail) {
+            if (sizeClass(segment) != sizeClass) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int sizeClass(SearchSegment segment) {
+        int sizeClass = 0;
+        long bound = (long) segmentSize * mergeFactor;
+        while (segment.docCount() >= bound) {
+            sizeClass++;
+            bound *= mergeFactor;
+        }
+        return sizeClass;
+    }
+
+    private void mergeTail(int count) {
+        List<SearchSegment> tail = new ArrayList<>(segments.subList(segments.size() - count, segments.size()));
+        List<boolean[]> liveFlags = new ArrayList<>();
+        for (SearchSegment segment : tail) {
+            boolean[] flags = new boolean[segment.docCount()];
+            for (int local = 0; local < flags.length; local++) {
+                flags[local] = isLive(segment.docId(local), segment, local);
+            }
+            liveFlags.add(flags);
+        }
+        SearchSegment merged = SearchSegment.merge(tail, liveFlags);
+        for (int local = 0; local < merged.docCount(); local++) {
+            LiveCopy copy = live.get(merged.docId(local));
+            copy.owner = merged;
+            copy.local = local;
+        }
+        segments.subList(segments.size() - count, segments.size()).clear();
+        segments.add(merged);
+    }
+
+    private static void parseQuery(String query, Set<String> terms, List<List<String>> phrases, List<int[]> phraseOffsets) {
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            List<String> tokens = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            TextTokenizer.tokenize(parts[i], 0, tokens, positions);
+            terms.addAll(tokens);
+            // odd parts sit between quotes
+            if (i % 2 == 1 && tokens.size() > 1) {
+                int[] offsets = new int[tokens.size()];
+                for (int t = 0; t < offsets.length; t++) {
+                    offsets[t] = positions.get(t) - positions.get(0);
+                }
+                phrases.add(tokens);
+                phraseOffsets.add(offsets);
+            }
+        }
+    }
+
+    private static boolean containsPhrases(SearchSegment view, int local, List<List<String>> phrases, List<int[]> phraseOffsets) {
+        for (int p = 0; p < phrases.size(); p++) {
+            List<String> phrase = phrases.get(p);
+            int[] offsets = phraseOffsets.get(p);
+            int[][] positions = new int[phrase.size()][];
+            for (int t = 0; t < phrase.size(); t++) {
+                SearchSegment.Postings postings = view.postings(phrase.get(t));
+                positions[t] = postings == null ? null : postings.positionsIn(local);
+                if (positions[t] == null) {
+                    return false;
+                }
+            }
+            boolean found = false;
+            for (int start : positions[0]) {
+                boolean all = true;
+                for (int t = 1; t < positions.length && all; t++) {
+                    all = Arrays.binarySearch(positions[t], start + offsets[t]) >= 0;
+                }
+                if (all) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
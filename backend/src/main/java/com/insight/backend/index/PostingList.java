@@ -0,0 +1,129 @@
+package com.insight.backend.index;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of ids stored as varint gaps. Ids normally arrive in increasing order, so an
+ * add is an append of one or two bytes; an out-of-order id rebuilds the list. Not thread-safe.
+ */
+public class PostingList {
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int size;
+    private long last;
+
+    public int size() {
+        return size;
+    }
+
+    public int sizeInBytes() {
+        return length;
+    }
+
+    public boolean add(long id) {
+        if (size > 0 && id <= last) {
+            long[] ids = toArray();
+            int position = Arrays.binarySearch(ids, id);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            long[] merged = new long[ids.length + 1];
+            System.arraycopy(ids, 0, merged, 0, position);
+            merged[position] = id;
+            System.arraycopy(ids, position, merged, position + 1, ids.length - position);
+            rebuild(merged);
+            return true;
+        }
+        append(id);
+        return true;
+    }
+
+    public long[] toArray() {
+        long[] ids = new long[size];
+        long id = 0;
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            long gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                gap |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            id += gap;
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Ids present in both sorted arrays.
+     */
+    public static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                result[count++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Ids present in either sorted array.
+     */
+    public static long[] union(long[] a, long[] b) {
+        long[] result = new long[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                result[count++] = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private void rebuild(long[] ids) {
+        data = new byte[Math.max(8, ids.length * 2)];
+        length = 0;
+        size = 0;
+        last = 0;
+        for (long id : ids) {
+            append(id);
+        }
+    }
+
+    private void append(long id) {
+        if (length + 10 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        long gap = id - last;
+        while ((gap & ~0x7FL) != 0) {
+            data[length++] = (byte) ((gap & 0x7F) | 0x80);
+            gap >>>= 7;
+        }
+        data[length++] = (byte) gap;
+        last = id;
+        size++;
+    }
+}
@@ -0,0 +1,326 @@
+package com.insight.backend.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Weighted prefix completion. Keys are kept sorted as UTF-8 in one byte array, so the keys
+ * starting with a prefix form a contiguous range found by binary search; a max segment tree
+ * over the weights then yields the heaviest k of that range in O(k log n). New keys wait in
+ * a small unsorted tail that is scanned on every query and merged in once it fills up.
+ * Not thread-safe.
+ */
+public class PrefixIndex {
+
+    private final int tailCapacity;
+
+    private byte[] keyBytes = new byte[0];
+    private int[] keyOffsets = {0};
+    private long[] ids = new long[0];
+    private long[] weights = new long[0];
+    private int[] tree = new int[0];
+    private int size;
+
+    private final List<byte[]> tailKeys = new ArrayList<>();
+    private long[] tailIds = new long[16];
+    private long[] tailWeights = new long[16];
+
+    public PrefixIndex(int tailCapacity) {
+        this.tailCapacity = tailCapacity;
+    }
+
+    public int size() {
+        return size + tailKeys.size();
+    }
+
+    /**
+     * Bytes held by the sealed arrays and the tail.
+     */
+    public long memoryBytes() {
+        long tailBytes = 0;
+        for (byte[] key : tailKeys) {
+            tailBytes += key.length + 16;
+        }
+        return keyBytes.length + 4L * keyOffsets.length + 8L * ids.length + 8L * weights.length
+            + 4L * tree.length + 16L * tailIds.length + tailBytes;
+    }
+
+    /**
+     * Adds the entry or sets its weight. An entry is identified by (key, id).
+     */
+    public void put(String key, long id, long weight) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int position = find(bytes, id);
+        if (position >= 0) {
+            weights[position] = weight;
+            updateTree(position);
+            return;
+        }
+        for (int i = 0; i < tailKeys.size(); i++) {
+            if (tailIds[i] == id && Arrays.equals(tailKeys.get(i), bytes)) {
+                tailWeights[i] = weight;
+                return;
+            }
+        }
+        if (tailKeys.size() == tailIds.length) {
+            tailIds = Arrays.copyOf(tailIds, tailIds.length * 2);
+            tailWeights = Arrays.copyOf(tailWeights, tailWeights.length * 2);
+        }
+        tailIds[tailKeys.size()] = id;
+        tailWeights[tailKeys.size()] = weight;
+        tailKeys.add(bytes);
+        if (tailKeys.size() >= tailCapacity) {
+            mergeTail();
+        }
+    }
+
+    /**
+     * Adds many new entries with a single sort, for the initial load.
+     */
+    public void putAll(List<String> keys, long[] entryIds, long[] entryWeights) {
+        for (int i = 0; i < keys.size(); i++) {
+            if (tailKeys.size() == tailIds.length) {
+                tailIds = Arrays.copyOf(tailIds, tailIds.length * 2);
+                tailWeights = Arrays.copyOf(tailWeights, tailWeights.length * 2);
+            }
+            tailIds[tailKeys.size()] = entryIds[i];
+            tailWeights[tailKeys.size()] = entryWeights[i];
+            tailKeys.add(keys.get(i).getBytes(StandardCharsets.UTF_8));
+        }
+        mergeTail();
+    }
+
+    /**
+     * Returns {ids, weights} of the heaviest {@code limit} entries whose key starts with the
+     * prefix, heaviest first, ties by key.
+     */
+    public long[][] complete(String prefix, int limit) {
+        byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        int from = lowerBound(bytes);
+        int to = upperBound(bytes);
+
+        // best candidates so far, lightest on top: {weight, id, sealed position or -1 - tail index}
+        PriorityQueue<long[]> best = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : compareEntries(b, a));
+        // sealed subranges by the position of their heaviest entry
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compareSealed(a[2], b[2]));
+        if (from < to) {
+            ranges.add(new int[] {from, to, argMax(from, to)});
+        }
+        int taken = 0;
+        while (!ranges.isEmpty() && taken < limit) {
+            int[] range = ranges.poll();
+            int top = range[2];
+            offer(best, new long[] {weights[top], ids[top], top}, limit);
+            taken++;
+            if (range[0] < top) {
+                ranges.add(new int[] {range[0], top, argMax(range[0], top)});
+            }
+            if (top + 1 < range[1]) {
+                ranges.add(new int[] {top + 1, range[1], argMax(top + 1, range[1])});
+            }
+        }
+        for (int i = 0; i < tailKeys.size(); i++) {
+            if (startsWith(tailKeys.get(i), bytes)) {
+                offer(best, new long[] {tailWeights[i], tailIds[i], -1 - i}, limit);
+            }
+        }
+
+        long[][] result = {new long[best.size()], new long[best.size()]};
+        for (int i = best.size() - 1; i >= 0; i--) {
+            long[] entry = best.poll();
+            result[0][i] = entry[1];
+            result[1][i] = entry[0];
+        }
+        return result;
+    }
+
+    private void offer(PriorityQueue<long[]> best, long[] entry, int limit) {
+        best.add(entry);
+        if (best.size() > limit) {
+            best.poll();
+        }
+    }
+
+    private int compareEntries(long[] a, long[] b) {
+        int cmp = compareBytes(keyOf(a[2]), keyOf(b[2]));
+        return cmp != 0 ? cmp : Long.compare(a[1], b[1]);
+    }
+
+    /**
+     * Orders sealed positions heaviest first, then by position, which is key order.
+     */
+    private int compareSealed(int a, int b) {
+        return weights[a] != weights[b] ? Long.compare(weights[b], weights[a]) : Integer.compare(a, b);
+    }
+
+    private byte[] keyOf(long position) {
+        return position >= 0 ? sealedKey((int) position) : tailKeys.get((int) (-1 - position));
+    }
+
+    private byte[] sealedKey(int position) {
+        return Arrays.copyOfRange(keyBytes, keyOffsets[position], keyOffsets[position + 1]);
+    }
+
+    private void mergeTail() {
+        int total = size + tailKeys.size();
+        byte[][] keys = new byte[total][];
+        long[] allIds = Arrays.copyOf(ids, total);
+        long[] allWeights = Arrays.copyOf(weights, total);
+        int totalBytes = keyBytes.length;
+        for (int i = 0; i < total; i++) {
+            keys[i] = i < size ? sealedKey(i) : tailKeys.get(i - size);
+            if (i >= size) {
+                allIds[i] = tailIds[i - size];
+                allWeights[i] = tailWeights[i - size];
+                totalBytes += keys[i].length;
+            }
+        }
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int cmp = compareBytes(keys[a], keys[b]);
+            return cmp != 0 ? cmp : Long.compare(allIds[a], allIds[b]);
+        });
+
+        byte[] newKeyBytes = new byte[totalBytes];
+        int[] newOffsets = new int[total + 1];
+        long[] newIds = new long[total];
+        long[] newWeights = new long[total];
+        int offset = 0;
+        for (int i = 0; i < total; i++) {
+            byte[] key = keys[order[i]];
+            System.arraycopy(key, 0, newKeyBytes, offset, key.length);
+            offset += key.length;
+            newOffsets[i + 1] = offset;
+            newIds[i] = allIds[order[i]];
+            newWeights[i] = allWeights[order[i]];
+        }
+        keyBytes = newKeyBytes;
+        keyOffsets = newOffsets;
+        ids = newIds;
+        weights = newWeights;
+        size = total;
+        tailKeys.clear();
+        if (tailIds.length > tailCapacity) {
+            tailIds = new long[16];
+            tailWeights = new long[16];
+        }
+        buildTree();
+    }
+
+    private void buildTree() {
+        tree = new int[2 * size];
+        for (int i = 0; i < size; i++) {
+            tree[size + i] = i;
+        }
+        for (int node = size - 1; node > 0; node--) {
+            tree[node] = heavier(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    private void updateTree(int position) {
+        for (int node = (position + size) / 2; node > 0; node /= 2) {
+            tree[node] = heavier(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Position of the heaviest entry in [from, to).
+     */
+    private int argMax(int from, int to) {
+        int best = from;
+        for (int lo = from + size, hi = to + size; lo < hi; lo /= 2, hi /= 2) {
+            if ((lo & 1) == 1) {
+                best = heavier(best, tree[lo++]);
+            }
+            if ((hi & 1) == 1) {
+                best = heavier(best, tree[--hi]);
+            }
+        }
+        return best;
+    }
+
+    private int heavier(int a, int b) {
+        return compareSealed(a, b) <= 0 ? a : b;
+    }
+
+    private int find(byte[] key, long id) {
+        for (int position = lowerBound(key); position < size && compareBytes(sealedKey(position), key) == 0; position++) {
+            if (ids[position] == id) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * First position whose key is not below {@code key}.
+     */
+    private int lowerBound(byte[] key) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareKeyAt(mid, key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * First position whose key neither starts with nor sorts below {@code prefix}.
+     */
+    private int upperBound(byte[] prefix) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareKeyAt(mid, prefix) < 0 || startsWithAt(mid, prefix)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int compareKeyAt(int position, byte[] key) {
+        return compareBytes(keyBytes, keyOffsets[position], keyOffsets[position + 1], key, 0, key.length);
+    }
+
+    private boolean startsWithAt(int position, byte[] prefix) {
+        int start = keyOffsets[position];
+        return keyOffsets[position + 1] - start >= prefix.length
+            && compareBytes(keyBytes, start, start + prefix.length, prefix, 0, prefix.length) == 0;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        return compareBytes(a, 0, a.length, b, 0, b.length);
+    }
+
+    /**
+     * Unsigned lexicographic comparison, which for UTF-8 matches code point order.
+     */
+    private static int compareBytes(byte[] a, int aFrom, int aTo, byte[] b, int bFrom, int bTo) {
+        int length = Math.min(aTo - aFrom, bTo - bFrom);
+        for (int i = 0; i < length; i++) {
+            int cmp = (a[aFrom + i] & 0xFF) - (b[bFrom + i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return (aTo - aFrom) - (bTo - bFrom);
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length && compareBytes(key, 0, prefix.length, prefix, 0, prefix.length) == 0;
+    }
+}
@@ -0,0 +1,138 @@
+package com.insight.backend.index;
+
+import java.util.Arrays;
+
+/**
+ * One user's daily (rank, score) history as a delta-encoded byte stream. Every point is
+ * three zigzag varints: days since the previous point, rank change and score change, so a
+ * steady day costs three or four bytes. The stream is self-describing; the tail values are
+ * kept decoded so appends never re-read it. Not thread-safe.
+ */
+public class RankSeries {
+
+    private byte[] data;
+    private int length;
+    private int points;
+    private long lastDay;
+    private long lastRank;
+    private long lastScore;
+
+    public RankSeries() {
+        this.data = new byte[16];
+    }
+
+    public static RankSeries decode(byte[] encoded) {
+        RankSeries series = new RankSeries();
+        series.data = Arrays.copyOf(encoded, Math.max(encoded.length, 16));
+        series.length = encoded.length;
+        int[] position = {0};
+        while (position[0] < series.length) {
+            series.lastDay += readZigZag(series.data, position);
+            series.lastRank += readZigZag(series.data, position);
+            series.lastScore += readZigZag(series.data, position);
+            series.points++;
+        }
+        return series;
+    }
+
+    public int points() {
+        return points;
+    }
+
+    public int sizeInBytes() {
+        return length;
+    }
+
+    /**
+     * Returns whether a point for {@code epochDay} is stored, or a later one.
+     */
+    public boolean covers(long epochDay) {
+        return points > 0 && lastDay >= epochDay;
+    }
+
+    public void append(long epochDay, long rank, long score) {
+        if (covers(epochDay)) {
+            throw new IllegalArgumentException("Day " + epochDay + " is not after the last recorded day");
+        }
+        ensureCapacity(30);
+        writeZigZag(epochDay - lastDay);
+        writeZigZag(rank - lastRank);
+        writeZigZag(score - lastScore);
+        lastDay = epochDay;
+        lastRank = rank;
+        lastScore = score;
+        points++;
+    }
+
+    public byte[] toBytes() {
+        return Arrays.copyOf(data, length);
+    }
+
+    /**
+     * Encodes one point as its change from the previous one, the bytes {@link #append} would
+     * write for it.
+     */
+    public static byte[] encodeStep(long days, long rankChange, long scoreChange) {
+        RankSeries step = new RankSeries();
+        step.writeZigZag(days);
+        step.writeZigZag(rankChange);
+        step.writeZigZag(scoreChange);
+        return step.toBytes();
+    }
+
+    /**
+     * Decodes the points with {@code fromDay <= day <= toDay} as {days, ranks, scores}.
+     */
+    public long[][] range(long fromDay, long toDay) {
+        long[] days = new long[points];
+        long[] ranks = new long[points];
+        long[] scores = new long[points];
+        int count = 0;
+        long day = 0;
+        long rank = 0;
+        long score = 0;
+        int[] position = {0};
+        while (position[0] < length) {
+            day += readZigZag(data, position);
+            rank += readZigZag(data, position);
+            score += readZigZag(data, position);
+            if (day > toDay) {
+                break;
+            }
+            if (day >= fromDay) {
+                days[count] = day;
+                ranks[count] = rank;
+                scores[count] = score;
+                count++;
+            }
+        }
+        return new long[][] {Arrays.copyOf(days, count), Arrays.copyOf(ranks, count), Arrays.copyOf(scores, count)};
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + extra));
+        }
+    }
+
+    private void writeZigZag(long value) {
+        long encoded = (value << 1) ^ (value >> 63);
+        while ((encoded & ~0x7FL) != 0) {
+            data[length++] = (byte) ((encoded & 0x7F) | 0x80);
+            encoded >>>= 7;
+        }
+        data[length++] = (byte) encoded;
+    }
+
+    private static long readZigZag(byte[] data, int[] position) {
+        long encoded = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            encoded |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
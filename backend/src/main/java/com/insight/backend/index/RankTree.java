@@ -0,0 +1,222 @@
+package com.insight.backend.index;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Order-statistic treap keyed by (score desc, id asc). Inserts, moves, removals and
+ * rank lookups are O(log n); reading k consecutive positions is O(log n + k).
+ * Not thread-safe, callers guard it with their own lock.
+ */
+public class RankTree {
+
+    private static final class Node {
+        final long id;
+        final long score;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(long id, long score, int priority) {
+            this.id = id;
+            this.score = score;
+            this.priority = priority;
+        }
+    }
+
+    private final Map<Long, Node> nodes = new HashMap<>();
+    private final Random random = new Random();
+    private Node root;
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public boolean contains(long id) {
+        return nodes.containsKey(id);
+    }
+
+    public long scoreOf(long id) {
+        Node node = nodes.get(id);
+        return node == null ? 0 : node.score;
+    }
+
+    /**
+     * Inserts the id or moves it to its new score. Returns the new 1-based rank.
+     */
+    public int put(long id, long score) {
+        Node existing = nodes.get(id);
+        if (existing != null) {
+            if (existing.score == score) {
+                return rankOf(id);
+            }
+            detach(existing);
+        }
+        Node node = new Node(id, score, random.nextInt());
+        nodes.put(id, node);
+        Node[] parts = split(root, score, id, false);
+        root = merge(merge(parts[0], node), parts[1]);
+        return rankOf(id);
+    }
+
+    public boolean remove(long id) {
+        Node node = nodes.remove(id);
+        if (node == null) {
+            return false;
+        }
+        detach(node);
+        return true;
+    }
+
+    public void clear() {
+        nodes.clear();
+        root = null;
+    }
+
+    /**
+     * Returns the 1-based rank of the id, or 0 if it is not in the tree.
+     */
+    public int rankOf(long id) {
+        Node target = nodes.get(id);
+        if (target == null) {
+            return 0;
+        }
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(target.score, target.id, node);
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                if (cmp == 0) {
+                    return rank;
+                }
+                node = node.right;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns how many entries order strictly before the key (score, id), which need not
+     * be in the tree.
+     */
+    public int countBefore(long score, long id) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (compare(score, id, node) > 0) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns up to {@code count} ids starting at the 0-based position {@code offset}.
+     */
+    public long[] idsFrom(int offset, int count) {
+        int available = Math.max(0, Math.min(count, size() - Math.max(offset, 0)));
+        long[] ids = new long[available];
+        if (available == 0) {
+            return ids;
+        }
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        int skip = Math.max(offset, 0);
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (skip < leftSize) {
+                path.push(node);
+                node = node.left;
+            } else if (skip == leftSize) {
+                path.push(node);
+                break;
+            } else {
+                skip -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        int filled = 0;
+        while (filled < available && !path.isEmpty()) {
+            Node current = path.pop();
+            ids[filled++] = current.id;
+            Node next = current.right;
+            while (next != null) {
+                path.push(next);
+                next = next.left;
+            }
+        }
+        return ids;
+    }
+
+    private void detach(Node node) {
+        Node[] lower = split(root, node.score, node.id, false);
+        Node[] upper = split(lower[1], node.score, node.id, true);
+        root = merge(lower[0], upper[1]);
+    }
+
+    /**
+     * Splits into nodes ordered before the key and the rest. With {@code inclusive}
+     * the key itself goes to the left part.
+     */
+    private Node[] split(Node node, long score, long id, boolean inclusive) {
+        if (node == null) {
+            return new Node[] {null, null};
+        }
+        int cmp = compare(score, id, node);
+        boolean goesLeft = inclusive ? cmp >= 0 : cmp > 0;
+        if (goesLeft) {
+            Node[] parts = split(node.right, score, id, inclusive);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+            return parts;
+        }
+        Node[] parts = split(node.left, score, id, inclusive);
+        node.left = parts[1];
+        update(node);
+        parts[1] = node;
+        return parts;
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static int compare(long score, long id, Node node) {
+        if (score != node.score) {
+            return score > node.score ? -1 : 1;
+        }
+        return Long.compare(id, node.id);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+}
@@ -0,0 +1,206 @@
+package com.insight.backend.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable slice of the full-text index. Documents get local numbers in insertion order;
+ * every term maps to the ascending local numbers containing it, the weighted term frequency
+ * in each, and the term's positions in each. Segments are written once by a {@link Builder}
+ * and combined by {@link #merge}, which drops documents that are no longer live.
+ */
+public class SearchSegment {
+
+    public static final class Postings {
+        final int[] docs;
+        final int[] freqs;
+        final int[] positionStarts;
+        final int[] positions;
+
+        Postings(int[] docs, int[] freqs, int[] positionStarts, int[] positions) {
+            this.docs = docs;
+            this.freqs = freqs;
+            this.positionStarts = positionStarts;
+            this.positions = positions;
+        }
+
+        public int docFrequency() {
+            return docs.length;
+        }
+
+        /**
+         * Returns the positions of the term in the local document, or null if absent.
+         */
+        int[] positionsIn(int local) {
+            int k = Arrays.binarySearch(docs, local);
+            return k < 0 ? null : Arrays.copyOfRange(positions, positionStarts[k], positionStarts[k + 1]);
+        }
+    }
+
+    private final long[] docIds;
+    private final int[] lengths;
+    private final Map<String, Postings> terms;
+
+    private SearchSegment(long[] docIds, int[] lengths, Map<String, Postings> terms) {
+        this.docIds = docIds;
+        this.lengths = lengths;
+        this.terms = terms;
+    }
+
+    public int docCount() {
+        return docIds.length;
+    }
+
+    public long docId(int local) {
+        return docIds[local];
+    }
+
+    public int length(int local) {
+        return lengths[local];
+    }
+
+    public Postings postings(String term) {
+        return terms.get(term);
+    }
+
+    /**
+     * Combines the segments in order, keeping only the documents flagged in {@code live}.
+     */
+    public static SearchSegment merge(List<SearchSegment> parts, List<boolean[]> live) {
+        int[][] remap = new int[parts.size()][];
+        int total = 0;
+        for (int p = 0; p < parts.size(); p++) {
+            remap[p] = new int[parts.get(p).docCount()];
+            for (int local = 0; local < remap[p].length; local++) {
+                remap[p][local] = live.get(p)[local] ? total++ : -1;
+            }
+        }
+        long[] docIds = new long[total];
+        int[] lengths = new int[total];
+        TreeSet<String> allTerms = new TreeSet<>();
+        for (int p = 0; p < parts.size(); p++) {
+            SearchSegment part = parts.get(p);
+            for (int local = 0; local < remap[p].length; local++) {
+                if (remap[p][local] >= 0) {
+                    docIds[remap[p][local]] = part.docIds[local];
+                    lengths[remap[p][local]] = part.lengths[local];
+                }
+            }
+            allTerms.addAll(part.terms.keySet());
+        }
+
+        Map<String, Postings> terms = new HashMap<>();
+        for (String term : allTerms) {
+            TermBuilder merged = new TermBuilder();
+            for (int p = 0; p < parts.size(); p++) {
+                Postings postings = parts.get(p).terms.get(term);
+                if (postings == null) {
+                    continue;
+                }
+                for (int k = 0; k < postings.docs.length; k++) {
+                    int local = remap[p][postings.docs[k]];
+                    if (local >= 0) {
+                        merged.add(local, postings.freqs[k], postings.positions, postings.positionStarts[k], postings.positionStarts[k + 1]);
+                    }
+                }
+            }
+            if (merged.docs.size > 0) {
+                terms.put(term, merged.seal());
+            }
+        }
+        return new SearchSegment(docIds, lengths, terms);
+    }
+
+    /**
+     * Mutable segment that collects new documents until it is sealed.
+     */
+    public static final class Builder {
+        private long[] docIds = new long[16];
+        private int[] lengths = new int[16];
+        private int docCount;
+        private final Map<String, TermBuilder> terms = new HashMap<>();
+
+        public int docCount() {
+            return docCount;
+        }
+
+        /**
+         * Adds a document and returns its local number. The first {@code boostedTokens}
+         * tokens count {@code boost} times towards frequency and length.
+         */
+        public int add(long docId, List<String> tokens, List<Integer> positions, int boostedTokens, int boost) {
+            Map<String, int[]> freqs = new LinkedHashMap<>();
+            Map<String, IntList> termPositions = new HashMap<>();
+            int length = 0;
+            for (int i = 0; i < tokens.size(); i++) {
+                int weight = i < boostedTokens ? boost : 1;
+                freqs.computeIfAbsent(tokens.get(i), t -> new int[1])[0] += weight;
+                termPositions.computeIfAbsent(tokens.get(i), t -> new IntList()).add(positions.get(i));
+                length += weight;
+            }
+            if (docCount == docIds.length) {
+                docIds = Arrays.copyOf(docIds, docCount * 2);
+                lengths = Arrays.copyOf(lengths, docCount * 2);
+            }
+            int local = docCount++;
+            docIds[local] = docId;
+            lengths[local] = length;
+            for (Map.Entry<String, int[]> entry : freqs.entrySet()) {
+                IntList docPositions = termPositions.get(entry.getKey());
+                terms.computeIfAbsent(entry.getKey(), t -> new TermBuilder())
+                    .add(local, entry.getValue()[0], docPositions.values, 0, docPositions.size);
+            }
+            return local;
+        }
+
+        public SearchSegment seal() {
+            Map<String, Postings> sealed = new HashMap<>();
+            for (Map.Entry<String, TermBuilder> entry : terms.entrySet()) {
+                sealed.put(entry.getKey(), entry.getValue().seal());
+            }
+            return new SearchSegment(Arrays.copyOf(docIds, docCount), Arrays.copyOf(lengths, docCount), sealed);
+        }
+    }
+
+    private static final class TermBuilder {
+        final IntList docs = new IntList();
+        final IntList freqs = new IntList();
+        final IntList positionStarts = new IntList();
+        final IntList positions = new IntList();
+
+        void add(int local, int freq, int[] source, int from, int to) {
+            docs.add(local);
+            freqs.add(freq);
+            positionStarts.add(positions.size);
+            for (int i = from; i < to; i++) {
+                positions.add(source[i]);
+            }
+        }
+
+        Postings seal() {
+            int[] starts = Arrays.copyOf(positionStarts.values, positionStarts.size + 1);
+            starts[positionStarts.size] = positions.size;
+            return new Postings(docs.toArray(), freqs.toArray(), starts, positions.toArray());
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
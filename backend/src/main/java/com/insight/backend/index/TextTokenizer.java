@@ -0,0 +1,57 @@
+package com.insight.backend.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits text into lowercase letter/digit runs. Stop words are dropped but still take up a
+ * position, so phrase queries line up with the original text.
+ */
+public final class TextTokenizer {
+
+    public static final int MAX_TOKEN_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+        "of", "on", "or", "that", "the", "this", "to", "was", "with"));
+
+    private TextTokenizer() {}
+
+    /**
+     * Returns the tokens of {@code text}; {@code positions[i]} receives the position of the
+     * i-th token, counted from {@code firstPosition}. Returns the position after the text.
+     */
+    public static int tokenize(String text, int firstPosition, List<String> tokens, List<Integer> positions) {
+        int position = firstPosition;
+        if (text == null) {
+            return position;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean inToken = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (inToken && start < 0) {
+                start = i;
+            } else if (!inToken && start >= 0) {
+                String token = lower.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH));
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                    positions.add(position);
+                }
+                position++;
+                start = -1;
+            }
+        }
+        return position;
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, 0, tokens, new ArrayList<>());
+        return tokens;
+    }
+}
@@ -0,0 +1,218 @@
+package com.insight.backend.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded top-K over (score desc, id asc): a min-heap of the best members plus an id to
+ * heap-slot index. Ids outside the heap are only known through {@code bound}, a key that
+ * every outsider orders at or after, so a member is known to be in its exact place when it
+ * orders at or before the bound. Synchronized, as all operations are O(log K) or cached.
+ */
+public class TopKIndex {
+
+    private final int capacity;
+    private final long[] ids;
+    private final long[] scores;
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private int size;
+    private boolean loaded;
+    private long boundScore;
+    private long boundId;
+    private long[][] sorted;
+    private Map<Long, Long> deferred;
+    private long generation;
+
+    public TopKIndex(int capacity) {
+        this.capacity = capacity;
+        this.ids = new long[capacity];
+        this.scores = new long[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized boolean contains(long id) {
+        return slots.containsKey(id);
+    }
+
+    /**
+     * Starts collecting updates that race with a reload; {@link #load} replays them. Returns
+     * the ticket to pass to {@link #load}.
+     */
+    public synchronized long beginLoad() {
+        if (deferred == null) {
+            deferred = new HashMap<>();
+        }
+        return generation;
+    }
+
+    /**
+     * Replaces the contents with the leading rows of the full ordering. {@code exhaustive}
+     * means there are no other ids. Returns false and changes nothing if the index was
+     * cleared since {@code ticket} was taken, as the rows may predate the clear.
+     */
+    public synchronized boolean load(long ticket, long[] topIds, long[] topScores, boolean exhaustive) {
+        if (ticket != generation) {
+            return false;
+        }
+        Map<Long, Long> replay = deferred;
+        clear();
+        int count = Math.min(topIds.length, capacity);
+        for (int i = 0; i < count; i++) {
+            ids[size] = topIds[i];
+            scores[size] = topScores[i];
+            slots.put(topIds[i], size);
+            siftUp(size++);
+        }
+        if (exhaustive || count == 0) {
+            boundScore = Long.MIN_VALUE;
+            boundId = Long.MAX_VALUE;
+        } else {
+            boundScore = topScores[count - 1];
+            boundId = topIds[count - 1];
+        }
+        loaded = true;
+        if (replay != null) {
+            for (Map.Entry<Long, Long> update : replay.entrySet()) {
+                update(update.getKey(), update.getValue());
+            }
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        generation++;
+        deferred = null;
+        slots.clear();
+        size = 0;
+        loaded = false;
+        sorted = null;
+    }
+
+    public synchronized void update(long id, long score) {
+        if (!loaded) {
+            if (deferred != null) {
+                deferred.put(id, score);
+            }
+            return;
+        }
+        sorted = null;
+        Integer slot = slots.get(id);
+        if (slot != null) {
+            scores[slot] = score;
+            siftDown(siftUp(slot));
+            return;
+        }
+        if (size < capacity) {
+            ids[size] = id;
+            scores[size] = score;
+            slots.put(id, size);
+            siftUp(size++);
+            return;
+        }
+        if (isWorse(score, id, scores[0], ids[0])) {
+            lowerBound(score, id);
+            return;
+        }
+        slots.remove(ids[0]);
+        lowerBound(scores[0], ids[0]);
+        ids[0] = id;
+        scores[0] = score;
+        slots.put(id, 0);
+        siftDown(0);
+    }
+
+    /**
+     * Returns {ids, scores} of the best {@code limit} entries, fewer when no other ids exist,
+     * or null when the heap cannot prove that many positions and has to be reloaded.
+     */
+    public synchronized long[][] top(int limit) {
+        if (!loaded) {
+            return null;
+        }
+        if (sorted == null) {
+            sorted = sortExact();
+        }
+        if (sorted[0].length < limit && (boundScore != Long.MIN_VALUE || boundId != Long.MAX_VALUE)) {
+            return null;
+        }
+        int count = Math.min(limit, sorted[0].length);
+        return new long[][] {Arrays.copyOf(sorted[0], count), Arrays.copyOf(sorted[1], count)};
+    }
+
+    private long[][] sortExact() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> a.equals(b) ? 0 : isWorse(scores[a], ids[a], scores[b], ids[b]) ? 1 : -1);
+        int exact = 0;
+        while (exact < size && !isWorse(scores[order[exact]], ids[order[exact]], boundScore, boundId)) {
+            exact++;
+        }
+        long[] topIds = new long[exact];
+        long[] topScores = new long[exact];
+        for (int i = 0; i < exact; i++) {
+            topIds[i] = ids[order[i]];
+            topScores[i] = scores[order[i]];
+        }
+        return new long[][] {topIds, topScores};
+    }
+
+    private void lowerBound(long score, long id) {
+        if (isWorse(boundScore, boundId, score, id)) {
+            boundScore = score;
+            boundId = id;
+        }
+    }
+
+    private static boolean isWorse(long score, long id, long otherScore, long otherId) {
+        return score != otherScore ? score < otherScore : id > otherId;
+    }
+
+    private int siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) / 2;
+            if (!isWorse(scores[slot], ids[slot], scores[parent], ids[parent])) {
+                break;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+        return slot;
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int worst = slot;
+            for (int child = 2 * slot + 1; child <= 2 * slot + 2 && child < size; child++) {
+                if (isWorse(scores[child], ids[child], scores[worst], ids[worst])) {
+                    worst = child;
+                }
+            }
+            if (worst == slot) {
+                return;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        long score = scores[a];
+        ids[a] = ids[b];
+        scores[a] = scores[b];
+        ids[b] = id;
+        scores[b] = score;
+        slots.put(ids[a], a);
+        slots.put(ids[b], b);
+    }
+}
@@ -4,7 +4,7 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "achievements")
+@Table(name = "achievements", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "name"}))
 public class Achievement {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -5,7 +5,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+    @Index(name = "idx_comments_post_depth_id", columnList = "post_id, depth, id"),
+    @Index(name = "idx_comments_root_path", columnList = "root_id, path")
+})
 public class Comment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,6 +27,12 @@ public class Comment {
     
     private Integer score = 0;
     
+    @Column(name = "up_count")
+    private Integer upCount = 0;
+    
+    @Column(name = "down_count")
+    private Integer downCount = 0;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -33,6 +42,14 @@ public class Comment {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_comment_id")
     private Comment parentComment;
+    
+    @Column(name = "root_id")
+    private Long rootId;
+    
+    @Column(length = 1300)
+    private String path;
+    
+    private Integer depth = 0;
 
     public Comment() {
         this.createdAt = LocalDateTime.now();
@@ -60,6 +77,12 @@ public class Comment {
     public Integer getScore() { return score; }
     public void setScore(Integer score) { this.score = score; }
     
+    public Integer getUpCount() { return upCount; }
+    public void setUpCount(Integer upCount) { this.upCount = upCount; }
+    
+    public Integer getDownCount() { return downCount; }
+    public void setDownCount(Integer downCount) { this.downCount = downCount; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
@@ -68,4 +91,13 @@ public class Comment {
     
     public Comment getParentComment() { return parentComment; }
     public void setParentComment(Comment parentComment) { this.parentComment = parentComment; }
+    
+    public Long getRootId() { return rootId; }
+    public void setRootId(Long rootId) { this.rootId = rootId; }
+    
+    public String getPath() { return path; }
+    public void setPath(String path) { this.path = path; }
+    
+    public Integer getDepth() { return depth; }
+    public void setDepth(Integer depth) { this.depth = depth; }
 }
\ No newline at end of file
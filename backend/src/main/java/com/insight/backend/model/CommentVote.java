@@ -0,0 +1,53 @@
+package com.insight.backend.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "comment_votes", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "comment_id"}))
+public class CommentVote {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "comment_id", nullable = false)
+    private Comment comment;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private VoteType type;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public CommentVote() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public CommentVote(User user, Comment comment, VoteType type) {
+        this();
+        this.user = user;
+        this.comment = comment;
+        this.type = type;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    
+    public Comment getComment() { return comment; }
+    public void setComment(Comment comment) { this.comment = comment; }
+    
+    public VoteType getType() { return type; }
+    public void setType(VoteType type) { this.type = type; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
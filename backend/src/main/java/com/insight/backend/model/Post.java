@@ -5,7 +5,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+    @Index(name = "idx_posts_score_desc_id", columnList = "score DESC, id ASC"),
+    @Index(name = "idx_posts_created_at_id", columnList = "created_at, id")
+})
 public class Post {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,6 +26,16 @@ public class Post {
     
     private Integer score = 0;
     
+    // maintained by PostCounterService with relative updates, never written from the entity
+    @Column(name = "comment_count", updatable = false)
+    private Integer commentCount = 0;
+    
+    @Column(name = "up_count", updatable = false)
+    private Integer upCount = 0;
+    
+    @Column(name = "down_count", updatable = false)
+    private Integer downCount = 0;
+    
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Vote> votes;
     
@@ -65,6 +78,15 @@ public class Post {
     public Integer getScore() { return score; }
     public void setScore(Integer score) { this.score = score; }
     
+    public Integer getCommentCount() { return commentCount; }
+    public void setCommentCount(Integer commentCount) { this.commentCount = commentCount; }
+    
+    public Integer getUpCount() { return upCount; }
+    public void setUpCount(Integer upCount) { this.upCount = upCount; }
+    
+    public Integer getDownCount() { return downCount; }
+    public void setDownCount(Integer downCount) { this.downCount = downCount; }
+    
     public List<Vote> getVotes() { return votes; }
     public void setVotes(List<Vote> votes) { this.votes = votes; }
     
@@ -0,0 +1,64 @@
+package com.insight.backend.model;
+
+import javax.persistence.*;
+
+/**
+ * One chunk of a user's rank history: the {@link com.insight.backend.index.RankSeries} points
+ * from {@code firstDay} to {@code lastDay}, the first one encoded from zero. The last point is
+ * kept in columns so the next day can be appended without decoding the chunk.
+ */
+@Entity
+@Table(name = "rank_history_chunks", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "first_day"}))
+public class RankHistory {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "first_day", nullable = false)
+    private Long firstDay;
+    
+    @Column(name = "last_day", nullable = false)
+    private Long lastDay;
+    
+    @Column(name = "last_rank", nullable = false)
+    private Long lastRank;
+    
+    @Column(name = "last_score", nullable = false)
+    private Long lastScore;
+    
+    @Column(nullable = false)
+    private Integer points = 0;
+    
+    // a chunk is closed at 256 bytes, one more point adds at most 30
+    @Column(nullable = false, length = 512)
+    private byte[] data;
+
+    public RankHistory() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public Long getFirstDay() { return firstDay; }
+    public void setFirstDay(Long firstDay) { this.firstDay = firstDay; }
+    
+    public Long getLastDay() { return lastDay; }
+    public void setLastDay(Long lastDay) { this.lastDay = lastDay; }
+    
+    public Long getLastRank() { return lastRank; }
+    public void setLastRank(Long lastRank) { this.lastRank = lastRank; }
+    
+    public Long getLastScore() { return lastScore; }
+    public void setLastScore(Long lastScore) { this.lastScore = lastScore; }
+    
+    public Integer getPoints() { return points; }
+    public void setPoints(Integer points) { this.points = points; }
+    
+    public byte[] getData() { return data; }
+    public void setData(byte[] data) { this.data = data; }
+}
@@ -0,0 +1,71 @@
+package com.insight.backend.model;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A finished unit of the daily reset: a whole stage (rangeFrom = -1) or one id-range
+ * partition of a stage, or the last failure of the job (stage FAILED, with its stack trace
+ * in error). Written by {@link com.insight.backend.service.DailyResetService}.
+ */
+@Entity
+@Table(name = "reset_checkpoints", uniqueConstraints = @UniqueConstraint(columnNames = {"business_date", "stage", "range_from"}))
+public class ResetCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+    
+    @Column(nullable = false, length = 32)
+    private String stage;
+    
+    @Column(name = "range_from", nullable = false)
+    private Long rangeFrom;
+    
+    @Column(name = "range_to", nullable = false)
+    private Long rangeTo;
+    
+    @Column(name = "rows_affected")
+    private Long rowsAffected;
+    
+    @Column(name = "duration_ms")
+    private Long durationMs;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    @Column(length = 4000)
+    private String error;
+
+    public ResetCheckpoint() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public LocalDate getBusinessDate() { return businessDate; }
+    public void setBusinessDate(LocalDate businessDate) { this.businessDate = businessDate; }
+    
+    public String getStage() { return stage; }
+    public void setStage(String stage) { this.stage = stage; }
+    
+    public Long getRangeFrom() { return rangeFrom; }
+    public void setRangeFrom(Long rangeFrom) { this.rangeFrom = rangeFrom; }
+    
+    public Long getRangeTo() { return rangeTo; }
+    public void setRangeTo(Long rangeTo) { this.rangeTo = rangeTo; }
+    
+    public Long getRowsAffected() { return rowsAffected; }
+    public void setRowsAffected(Long rowsAffected) { this.rowsAffected = rowsAffected; }
+    
+    public Long getDurationMs() { return durationMs; }
+    public void setDurationMs(Long durationMs) { this.durationMs = durationMs; }
+    
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+    
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,34 @@
+package com.insight.backend.model;
+
+import javax.persistence.*;
+
+/**
+ * A logged-out token, kept until it would have expired so every node refuses it. Written and
+ * read by {@link com.insight.backend.security.TokenCache}; the id orders revocations for the
+ * nodes that poll for new ones.
+ */
+@Entity
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "token_hash", length = 64, unique = true, nullable = false)
+    private String tokenHash;
+    
+    // epoch milliseconds, as in the token's exp claim
+    @Column(name = "expires_at", nullable = false)
+    private Long expiresAt;
+
+    public RevokedToken() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public String getTokenHash() { return tokenHash; }
+    public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
+    
+    public Long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Long expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,45 @@
+package com.insight.backend.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * The lease on one cluster-wide scheduled job. Written by
+ * {@link com.insight.backend.service.LeaseService}; the fencing token grows with every new holder.
+ */
+@Entity
+@Table(name = "scheduler_leases")
+public class SchedulerLease {
+    @Id
+    @Column(length = 64)
+    private String name;
+    
+    @Column(length = 128)
+    private String owner;
+    
+    @Column(name = "fencing_token", nullable = false)
+    private Long fencingToken = 0L;
+    
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+    
+    @Column(name = "renewed_at")
+    private LocalDateTime renewedAt;
+
+    public SchedulerLease() {}
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+    
+    public Long getFencingToken() { return fencingToken; }
+    public void setFencingToken(Long fencingToken) { this.fencingToken = fencingToken; }
+    
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+    
+    public LocalDateTime getRenewedAt() { return renewedAt; }
+    public void setRenewedAt(LocalDateTime renewedAt) { this.renewedAt = renewedAt; }
+}
@@ -5,7 +5,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_total_score_id", columnList = "totalScore DESC, id ASC"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,6 +28,10 @@ public class User {
     
     private Integer postsCount = 0;
     
+    // one bit per AchievementRule, set only by AchievementService
+    @Column(name = "achievement_bits", updatable = false)
+    private Long achievementBits = 0L;
+    
     @Column(name = "joined_at")
     private LocalDateTime joinedAt;
     
@@ -75,6 +79,9 @@ public class User {
     public Integer getPostsCount() { return postsCount; }
     public void setPostsCount(Integer postsCount) { this.postsCount = postsCount; }
     
+    public Long getAchievementBits() { return achievementBits; }
+    public void setAchievementBits(Long achievementBits) { this.achievementBits = achievementBits; }
+    
     public LocalDateTime getJoinedAt() { return joinedAt; }
     public void setJoinedAt(LocalDateTime joinedAt) { this.joinedAt = joinedAt; }
     
@@ -9,4 +9,5 @@ import java.util.List;
 @Repository
 public interface AchievementRepository extends JpaRepository<Achievement, Long> {
     List<Achievement> findByUserIdOrderByUnlockedAtDesc(Long userId);
+
 }
\ No newline at end of file
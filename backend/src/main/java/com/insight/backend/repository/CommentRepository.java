@@ -1,13 +1,62 @@
 package com.insight.backend.repository;
 
+import com.insight.backend.dto.CommentNode;
+import com.insight.backend.dto.CommentVoteTarget;
 import com.insight.backend.model.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByPostIdOrderByCreatedAtAsc(Long postId);
-    List<Comment> findByParentCommentIdOrderByCreatedAtAsc(Long parentCommentId);
+    
+    @Query("SELECT new com.insight.backend.dto.CommentNode(c.id, c.parentComment.id, c.content, c.score, c.createdAt, u.id, u.username, c.path) " +
+           "FROM Comment c JOIN c.user u WHERE c.post.id = :postId ORDER BY c.createdAt ASC, c.id ASC")
+    List<CommentNode> findThreadNodes(@Param("postId") Long postId);
+    
+    @Query("SELECT new com.insight.backend.dto.CommentNode(c.id, c.parentComment.id, c.content, c.score, c.createdAt, u.id, u.username, c.path) " +
+           "FROM Comment c JOIN c.user u WHERE c.post.id = :postId AND c.depth = 0 AND c.id > :afterId ORDER BY c.id ASC")
+    List<CommentNode> findTopLevelNodesAfter(@Param("postId") Long postId, @Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT new com.insight.backend.dto.CommentNode(c.id, c.parentComment.id, c.content, c.score, c.createdAt, u.id, u.username, c.path) " +
+           "FROM Comment c JOIN c.user u WHERE c.rootId = :rootId AND c.path > :afterPath AND c.path LIKE :pathPrefix ORDER BY c.path ASC")
+    List<CommentNode> findSubtreeNodesAfter(@Param("rootId") Long rootId, @Param("pathPrefix") String pathPrefix,
+                                            @Param("afterPath") String afterPath, Pageable pageable);
+    
+    @Query("SELECT new com.insight.backend.dto.CommentNode(c.id, c.parentComment.id, c.content, c.score, c.createdAt, u.id, u.username, c.path) " +
+           "FROM Comment c JOIN c.user u WHERE c.id IN :ids")
+    List<CommentNode> findNodesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT new com.insight.backend.dto.CommentNode(c.id, c.parentComment.id, c.content, c.score, c.createdAt, u.id, u.username, c.path) " +
+           "FROM Comment c JOIN c.user u WHERE c.parentComment.id = :parentId ORDER BY c.createdAt ASC, c.id ASC")
+    List<CommentNode> findChildNodes(@Param("parentId") Long parentId);
+    
+    @Query("SELECT c.id, c.parentComment.id, c.upCount, c.downCount FROM Comment c WHERE c.post.id = :postId")
+    List<Object[]> findVoteCountsByPost(@Param("postId") Long postId);
+    
+    @Query("SELECT c.post.id AS postId, v.type AS currentVote " +
+           "FROM Comment c LEFT JOIN CommentVote v ON v.comment = c AND v.user.id = :userId WHERE c.id = :commentId")
+    Optional<CommentVoteTarget> findVoteTarget(@Param("commentId") Long commentId, @Param("userId") Long userId);
+    
+    @Query("SELECT c.upCount, c.downCount FROM Comment c WHERE c.id = :commentId")
+    List<Object[]> findVoteCounts(@Param("commentId") Long commentId);
+    
+    @Modifying
+    @Query("UPDATE Comment c SET c.upCount = COALESCE(c.upCount, 0) + :upDelta, c.downCount = COALESCE(c.downCount, 0) + :downDelta, " +
+           "c.score = COALESCE(c.score, 0) + :upDelta - :downDelta WHERE c.id = :commentId")
+    int addVotes(@Param("commentId") Long commentId, @Param("upDelta") int upDelta, @Param("downDelta") int downDelta);
+    
+    @Query("SELECT c.rootId, COUNT(c) FROM Comment c WHERE c.rootId IN :rootIds AND c.depth > 0 GROUP BY c.rootId")
+    List<Object[]> countRepliesByRoot(@Param("rootIds") List<Long> rootIds);
+    
+    @Query("SELECT COUNT(c) FROM Comment c WHERE c.rootId = :rootId AND c.path > :afterPath AND c.path LIKE :pathPrefix")
+    long countSubtreeAfter(@Param("rootId") Long rootId, @Param("pathPrefix") String pathPrefix, @Param("afterPath") String afterPath);
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.insight.backend.repository;
+
+import com.insight.backend.model.CommentVote;
+import com.insight.backend.model.VoteType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CommentVoteRepository extends JpaRepository<CommentVote, Long> {
+    
+    @Modifying
+    @Query(value = "MERGE INTO comment_votes v USING (VALUES (CAST(:userId AS BIGINT), CAST(:commentId AS BIGINT))) s (user_id, comment_id) " +
+        "ON v.user_id = s.user_id AND v.comment_id = s.comment_id " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, comment_id, type, created_at) VALUES (s.user_id, s.comment_id, :type, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int insertVote(@Param("userId") Long userId, @Param("commentId") Long commentId, @Param("type") String type);
+    
+    @Modifying
+    @Query("UPDATE CommentVote v SET v.type = :newType WHERE v.user.id = :userId AND v.comment.id = :commentId AND v.type = :currentType")
+    int switchVote(@Param("userId") Long userId, @Param("commentId") Long commentId, @Param("currentType") VoteType currentType, @Param("newType") VoteType newType);
+    
+    @Modifying
+    @Query("DELETE FROM CommentVote v WHERE v.user.id = :userId AND v.comment.id = :commentId AND v.type = :currentType")
+    int deleteVote(@Param("userId") Long userId, @Param("commentId") Long commentId, @Param("currentType") VoteType currentType);
+}
@@ -1,13 +1,21 @@
 package com.insight.backend.repository;
 
+import com.insight.backend.dto.AuthorScore;
+import com.insight.backend.dto.PostSummary;
+import com.insight.backend.dto.PostText;
+import com.insight.backend.dto.VoteTarget;
 import com.insight.backend.model.Post;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
@@ -18,4 +26,41 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     
     @Query("SELECT p FROM Post p ORDER BY p.score DESC")
     List<Post> findAllOrderByScoreDesc();
+    
+    @Query("SELECT new com.insight.backend.dto.PostSummary(p.id, p.title, p.score, p.createdAt, a.id, a.username, p.commentCount, p.upCount, p.downCount) FROM Post p JOIN p.author a ORDER BY p.score DESC, p.id ASC")
+    List<PostSummary> findTopSummaries(Pageable pageable);
+    
+    @Query("SELECT new com.insight.backend.dto.PostSummary(p.id, p.title, p.score, p.createdAt, a.id, a.username, p.commentCount, p.upCount, p.downCount) FROM Post p JOIN p.author a WHERE p.score < :score OR (p.score = :score AND p.id > :id) ORDER BY p.score DESC, p.id ASC")
+    List<PostSummary> findTopSummariesAfter(@Param("score") Integer score, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT new com.insight.backend.dto.PostSummary(p.id, p.title, p.score, p.createdAt, a.id, a.username, p.commentCount, p.upCount, p.downCount) FROM Post p JOIN p.author a ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummary> findNewestSummaries(Pageable pageable);
+    
+    @Query("SELECT new com.insight.backend.dto.PostSummary(p.id, p.title, p.score, p.createdAt, a.id, a.username, p.commentCount, p.upCount, p.downCount) FROM Post p JOIN p.author a WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummary> findNewestSummariesAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT new com.insight.backend.dto.PostSummary(p.id, p.title, p.score, p.createdAt, a.id, a.username, p.commentCount, p.upCount, p.downCount) FROM Post p JOIN p.author a WHERE p.createdAt >= :since")
+    List<PostSummary> findSummariesCreatedSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT new com.insight.backend.dto.PostSummary(p.id, p.title, p.score, p.createdAt, a.id, a.username, p.commentCount, p.upCount, p.downCount) FROM Post p JOIN p.author a WHERE p.id IN :ids")
+    List<PostSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.author.id AS authorId, p.score AS score, v.type AS currentVote FROM Post p LEFT JOIN p.votes v ON v.user.id = :userId WHERE p.id = :postId")
+    Optional<VoteTarget> findVoteTarget(@Param("postId") Long postId, @Param("userId") Long userId);
+    
+    @Query("SELECT new com.insight.backend.dto.PostText(p.id, p.title, p.content) FROM Post p WHERE p.id > :id ORDER BY p.id ASC")
+    List<PostText> findTextsAfter(@Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT p.id, t FROM Post p JOIN p.tags t")
+    List<Object[]> findAllPostTags();
+    
+    @Query("SELECT p.author.id AS userId, SUM(p.score) AS score FROM Post p GROUP BY p.author.id")
+    List<AuthorScore> sumScoresByAuthor();
+    
+    @Query("SELECT p.score FROM Post p WHERE p.id = :postId")
+    Integer findScore(@Param("postId") Long postId);
+    
+    @Modifying
+    @Query("UPDATE Post p SET p.score = p.score + :delta WHERE p.id = :postId")
+    int addToScore(@Param("postId") Long postId, @Param("delta") int delta);
 }
\ No newline at end of file
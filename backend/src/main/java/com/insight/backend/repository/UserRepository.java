@@ -1,9 +1,13 @@
 package com.insight.backend.repository;
 
+import com.insight.backend.dto.LeaderboardEntry;
 import com.insight.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,4 +21,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     @Query("SELECT u FROM User u ORDER BY u.totalScore DESC")
     List<User> findAllByOrderByTotalScoreDesc();
+    
+    @Query("SELECT new com.insight.backend.dto.LeaderboardEntry(u.id, u.username, u.avatar, u.totalScore, u.rank, u.postsCount) FROM User u")
+    List<LeaderboardEntry> findLeaderboardEntries();
+    
+    @Modifying
+    @Query("UPDATE User u SET u.totalScore = u.totalScore + :delta WHERE u.id = :userId")
+    int addToTotalScore(@Param("userId") Long userId, @Param("delta") int delta);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :userId")
+    int updatePassword(@Param("userId") Long userId, @Param("password") String password);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.postsCount = u.postsCount + 1 WHERE u.id = :userId")
+    int incrementPostsCount(@Param("userId") Long userId);
 }
\ No newline at end of file
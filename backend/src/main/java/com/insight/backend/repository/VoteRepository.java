@@ -3,7 +3,11 @@ package com.insight.backend.repository;
 import com.insight.backend.model.Vote;
 import com.insight.backend.model.User;
 import com.insight.backend.model.Post;
+import com.insight.backend.model.VoteType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -12,4 +16,18 @@ import java.util.Optional;
 public interface VoteRepository extends JpaRepository<Vote, Long> {
     Optional<Vote> findByUserAndPost(User user, Post post);
     void deleteByUserAndPost(User user, Post post);
+    
+    @Modifying
+    @Query(value = "MERGE INTO votes v USING (VALUES (CAST(:userId AS BIGINT), CAST(:postId AS BIGINT))) s (user_id, post_id) " +
+        "ON v.user_id = s.user_id AND v.post_id = s.post_id " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, post_id, type, created_at) VALUES (s.user_id, s.post_id, :type, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int insertVote(@Param("userId") Long userId, @Param("postId") Long postId, @Param("type") String type);
+    
+    @Modifying
+    @Query("UPDATE Vote v SET v.type = :newType WHERE v.user.id = :userId AND v.post.id = :postId AND v.type = :currentType")
+    int switchVote(@Param("userId") Long userId, @Param("postId") Long postId, @Param("currentType") VoteType currentType, @Param("newType") VoteType newType);
+    
+    @Modifying
+    @Query("DELETE FROM Vote v WHERE v.user.id = :userId AND v.post.id = :postId AND v.type = :currentType")
+    int deleteVote(@Param("userId") Long userId, @Param("postId") Long postId, @Param("currentType") VoteType currentType);
 }
\ No newline at end of file
@@ -1,41 +1,147 @@
 package com.insight.backend.scheduler;
 
-import com.insight.backend.service.PostService;
-import com.insight.backend.service.UserService;
+import com.insight.backend.service.DailyLeaderboardService;
+import com.insight.backend.service.DailyResetService;
+import com.insight.backend.service.LeaseService;
+import com.insight.backend.service.VoteScoreAggregator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
 @Component
 public class DailyResetScheduler {
     
+    private static final Logger log = LoggerFactory.getLogger(DailyResetScheduler.class);
+    
+    @Autowired
+    private DailyLeaderboardService dailyLeaderboardService;
+    
+    @Autowired
+    private DailyResetService dailyResetService;
+    
     @Autowired
-    private PostService postService;
+    private LeaseService leaseService;
     
     @Autowired
-    private UserService userService;
+    private VoteScoreAggregator voteScoreAggregator;
+    
+    @Value("${reset.follower-poll-interval-ms:5000}")
+    private long followerPollIntervalMs;
+    
+    @Value("${reset.follower-max-wait-ms:3600000}")
+    private long followerMaxWaitMs;
+    
+    @Value("${reset.retry-attempts:3}")
+    private int retryAttempts;
+    
+    @Value("${reset.retry-delay-ms:300000}")
+    private long retryDelayMs;
+    
+    private final ScheduledExecutorService background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "daily-reset-background");
+        thread.setDaemon(true);
+        return thread;
+    });
     
-    @Scheduled(cron = "0 0 0 * * *") // Run at midnight every day
+    @Scheduled(cron = "${reset.cron:0 0 0 * * *}") // Run at midnight every day
     public void performDailyReset() {
+        // Every node writes out its buffered votes, so none land after the reset
+        voteScoreAggregator.flush();
+        // Every node freezes its own in-memory daily leaderboard
+        LocalDate finishedDay = dailyLeaderboardService.getCurrentDay();
+        dailyLeaderboardService.rollover(LocalDate.now());
         try {
-            System.out.println("Starting daily reset process...");
-            
-            // Reset all posts
-            postService.resetAllPosts();
-            System.out.println("All posts have been reset");
-            
-            // Update user ranks based on scores
-            userService.updateUserRanks();
-            System.out.println("User ranks have been updated");
-            
-            // Check and award achievements
-            userService.checkAndAwardAchievements();
-            System.out.println("Achievements have been checked and awarded");
-            
-            System.out.println("Daily reset process completed successfully");
+            log.info("Starting daily reset process for {}...", finishedDay);
+            boolean ran = leaseService.runExclusive(DailyResetService.LEASE, lease -> {
+                dailyResetService.resumeUnfinished(lease);
+                if (!dailyResetService.run(finishedDay, lease)) {
+                    // another node finished it before this one got the lease
+                    dailyResetService.refreshLocalViews();
+                    log.info("Daily reset for {} was already done, local views refreshed", finishedDay);
+                }
+            });
+            if (!ran) {
+                log.info("Daily reset for {} runs on another node", finishedDay);
+                followReset(finishedDay);
+            }
         } catch (Exception e) {
-            System.err.println("Error during daily reset: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Daily reset for {} failed", finishedDay, e);
+            recordFailure(finishedDay, e);
+            scheduleRetry(finishedDay, 1);
         }
     }
-}
\ No newline at end of file
+    
+    @PreDestroy
+    public void stop() {
+        background.shutdownNow();
+    }
+    
+    /**
+     * Resumes a failed reset from its last checkpoint after a delay, a bounded number of times.
+     * The resume window still applies, so a retry that comes too late abandons the job.
+     */
+    private void scheduleRetry(LocalDate finishedDay, int attempt) {
+        if (attempt > retryAttempts) {
+            log.error("ALERT: daily reset for {} still unfinished after {} retries, it needs a restart inside the resume "
+                + "window or a manual fix; the last failure is in its FAILED checkpoint", finishedDay, retryAttempts);
+            return;
+        }
+        log.warn("Retrying the daily reset for {} in {} ms, attempt {} of {}", finishedDay, retryDelayMs, attempt, retryAttempts);
+        background.schedule(() -> {
+            try {
+                leaseService.runExclusive(DailyResetService.LEASE, lease -> dailyResetService.resumeWithinWindow(finishedDay, lease));
+            } catch (RuntimeException e) {
+                log.error("Retry {} of the daily reset for {} failed", attempt, finishedDay, e);
+                recordFailure(finishedDay, e);
+            }
+            if (!dailyResetService.isDone(finishedDay)) {
+                scheduleRetry(finishedDay, attempt + 1);
+            }
+        }, retryDelayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    private void recordFailure(LocalDate finishedDay, Exception failure) {
+        try {
+            dailyResetService.recordFailure(finishedDay, failure);
+        } catch (RuntimeException e) {
+            // the database is often what failed; the log above still has the trace
+            log.warn("Could not record the failure of the daily reset for {}: {}", finishedDay, e.getMessage());
+        }
+    }
+    
+    /**
+     * Waits off the scheduler thread for the lease holder to finish, then drops the local
+     * views of the shared tables. Dropping them earlier would re-warm from the old scores.
+     */
+    private void followReset(LocalDate finishedDay) {
+        long giveUpAt = System.currentTimeMillis() + followerMaxWaitMs;
+        AtomicReference<ScheduledFuture<?>> poll = new AtomicReference<>();
+        poll.set(background.scheduleWithFixedDelay(() -> {
+            try {
+                if (dailyResetService.isDone(finishedDay)) {
+                    dailyResetService.refreshLocalViews();
+                    log.info("Daily reset for {} finished on another node, local views refreshed", finishedDay);
+                } else if (System.currentTimeMillis() < giveUpAt) {
+                    return;
+                } else {
+                    log.error("Gave up waiting for the daily reset for {} on another node", finishedDay);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to follow the daily reset for {}", finishedDay, e);
+                return;
+            }
+            poll.get().cancel(false);
+        }, followerPollIntervalMs, followerPollIntervalMs, TimeUnit.MILLISECONDS));
+    }
+}
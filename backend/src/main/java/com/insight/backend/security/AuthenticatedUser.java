@@ -0,0 +1,34 @@
+package com.insight.backend.security;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The caller of an authenticated request, built from the claims of a verified token.
+ */
+public class AuthenticatedUser implements Principal {
+
+    public static final String ROLE_USER = "USER";
+
+    private final Long id;
+    private final String username;
+    private final List<String> roles;
+
+    public AuthenticatedUser(Long id, String username, List<String> roles) {
+        this.id = id;
+        this.username = username;
+        this.roles = Collections.unmodifiableList(roles);
+    }
+
+    public Long getId() { return id; }
+
+    public String getUsername() { return username; }
+
+    public List<String> getRoles() { return roles; }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -1,21 +1,28 @@
 package com.insight.backend.security;
 
 import com.insight.backend.security.JwtUtil;
-import com.insight.backend.security.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
 
+/**
+ * Authenticates requests from the bearer token alone. A token is verified once, its
+ * principal is built from the claims and cached by the token's hash, so later requests with
+ * it skip both the signature check and the user lookup.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
@@ -23,7 +30,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtUtil jwtUtil;
     
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private TokenCache tokenCache;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -31,20 +38,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String authorizationHeader = request.getHeader("Authorization");
         
-        String username = null;
-        String jwt = null;
-        
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            username = jwtUtil.extractUsername(jwt);
-        }
-        
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            
-            if (jwtUtil.validateToken(jwt, userDetails.getUsername())) {
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            AuthenticatedUser user = authenticate(authorizationHeader.substring(7));
+            if (user != null) {
                 UsernamePasswordAuthenticationToken authenticationToken = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    new UsernamePasswordAuthenticationToken(user, null, AuthorityUtils.createAuthorityList(user.getRoles().toArray(new String[0])));
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
             }
@@ -52,4 +51,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+    
+    private AuthenticatedUser authenticate(String jwt) {
+        String hash = TokenCache.hash(jwt);
+        AuthenticatedUser cached = tokenCache.get(hash);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            Claims claims = jwtUtil.extractAllClaims(jwt);
+            Long userId = claims.get("userId", Long.class);
+            if (userId == null || claims.getSubject() == null) {
+                return null;
+            }
+            AuthenticatedUser user = new AuthenticatedUser(userId, claims.getSubject(), Collections.singletonList(AuthenticatedUser.ROLE_USER));
+            long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+            return tokenCache.put(hash, user, expiresAt) ? user : null;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
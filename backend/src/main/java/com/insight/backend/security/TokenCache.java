@@ -0,0 +1,123 @@
+package com.insight.backend.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verified tokens keyed by the SHA-256 of their text, so a repeated token costs a hash and a
+ * lookup instead of a signature check. Bounded LRU; an entry is dropped once its token
+ * expires or is revoked. Revocations are stored in revoked_tokens and every node polls for
+ * new ones, so a token logged out on one node is refused by the others within the sync
+ * interval. They are kept until the token would have expired.
+ */
+@Component
+// the first sync at startup reads revoked_tokens, which the JPA schema update creates
+@DependsOn("entityManagerFactory")
+public class TokenCache {
+
+    private static final String REVOKE_SQL =
+        "MERGE INTO revoked_tokens (token_hash, expires_at) KEY (token_hash) VALUES (?, ?)";
+
+    private static final class VerifiedToken {
+        final AuthenticatedUser user;
+        final long expiresAt;
+
+        VerifiedToken(AuthenticatedUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${jwt.cache-size:10000}")
+    private int cacheSize;
+
+    private Map<String, VerifiedToken> verified;
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // highest revoked_tokens id this node has read
+    private long lastRevocationId;
+
+    @PostConstruct
+    public void init() {
+        verified = Collections.synchronizedMap(new LinkedHashMap<String, VerifiedToken>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        syncRevocations();
+    }
+
+    public AuthenticatedUser get(String hash) {
+        VerifiedToken entry = verified.get(hash);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis() || revokedTokens.containsKey(hash)) {
+            verified.remove(hash);
+            return null;
+        }
+        return entry.user;
+    }
+
+    /**
+     * Caches a freshly verified token unless it was revoked. Returns false for a revoked one.
+     */
+    public boolean put(String hash, AuthenticatedUser user, long expiresAt) {
+        if (revokedTokens.containsKey(hash)) {
+            return false;
+        }
+        verified.put(hash, new VerifiedToken(user, expiresAt));
+        return true;
+    }
+
+    public void revoke(String hash, long expiresAt) {
+        jdbcTemplate.update(REVOKE_SQL, hash, expiresAt);
+        revokedTokens.put(hash, expiresAt);
+        verified.remove(hash);
+    }
+
+    /**
+     * Picks up the revocations other nodes stored since the last sync and forgets the ones
+     * whose tokens have expired, here and in the table.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation-sync-interval-ms:5000}")
+    public synchronized void syncRevocations() {
+        jdbcTemplate.query("SELECT id, token_hash, expires_at FROM revoked_tokens WHERE id > ? ORDER BY id",
+            rs -> {
+                String hash = rs.getString("token_hash");
+                revokedTokens.put(hash, rs.getLong("expires_at"));
+                verified.remove(hash);
+                lastRevocationId = rs.getLong("id");
+            }, lastRevocationId);
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiry -> expiry <= now);
+        // every node may purge, deleting an expired row twice is harmless
+        jdbcTemplate.update("DELETE FROM revoked_tokens WHERE expires_at <= ?", now);
+    }
+
+    public static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.LeaderboardEntry;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Achievement rules. Each rule owns a fixed bit of users.achievement_bits, names the events
+ * that can make it true and tests a user's leaderboard entry. Bits must never be reused.
+ */
+public enum AchievementRule {
+
+    FIRST_POST(0, "First Post", "Created your first post", "🎯",
+        EnumSet.of(Event.POST_CREATED), user -> user.getPostsCount() >= 1),
+    CENTURY_CLUB(1, "Century Club", "Reached 100 total score", "💯",
+        EnumSet.of(Event.SCORE_CHANGED), user -> user.getScore() >= 100),
+    HIGH_SCORER(2, "High Scorer", "Reached 500 total score", "🌟",
+        EnumSet.of(Event.SCORE_CHANGED), user -> user.getScore() >= 500),
+    SCORE_MASTER(3, "Score Master", "Reached 1000 total score", "👑",
+        EnumSet.of(Event.SCORE_CHANGED), user -> user.getScore() >= 1000),
+    PROLIFIC_POSTER(4, "Prolific Poster", "Created 10 posts", "📝",
+        EnumSet.of(Event.POST_CREATED), user -> user.getPostsCount() >= 10),
+    POST_MASTER(5, "Post Master", "Created 50 posts", "📚",
+        EnumSet.of(Event.POST_CREATED), user -> user.getPostsCount() >= 50),
+    TOP_PERFORMER(6, "Top Performer", "Achieved top 3 rank", "🏆",
+        EnumSet.of(Event.RANK_CHANGED), user -> user.getRank() >= 1 && user.getRank() <= 3),
+    RANK_ONE(7, "Rank 1", "Achieved the #1 rank", "👑",
+        EnumSet.of(Event.RANK_CHANGED), user -> user.getRank() == 1);
+
+    public enum Event {
+        POST_CREATED,
+        SCORE_CHANGED,
+        RANK_CHANGED
+    }
+
+    private final long bit;
+    private final String title;
+    private final String description;
+    private final String icon;
+    private final Set<Event> events;
+    private final Predicate<LeaderboardEntry> condition;
+
+    AchievementRule(int bit, String title, String description, String icon, Set<Event> events, Predicate<LeaderboardEntry> condition) {
+        this.bit = 1L << bit;
+        this.title = title;
+        this.description = description;
+        this.icon = icon;
+        this.events = events;
+        this.condition = condition;
+    }
+
+    public long getBit() { return bit; }
+
+    public String getTitle() { return title; }
+
+    public String getDescription() { return description; }
+
+    public String getIcon() { return icon; }
+
+    public boolean listensTo(Event event) {
+        return events.contains(event);
+    }
+
+    public boolean isMetBy(LeaderboardEntry user) {
+        return condition.test(user);
+    }
+
+    public static AchievementRule byTitle(String title) {
+        for (AchievementRule rule : values()) {
+            if (rule.title.equals(title)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,211 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.LeaderboardEntry;
+import com.insight.backend.model.Achievement;
+import com.insight.backend.repository.AchievementRepository;
+import com.insight.backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grants achievements as things happen. An event evaluates only the rules listening to it,
+ * only for the users it can affect, against their in-memory leaderboard entry. Earned
+ * achievements are a bitset per user, cached here and mirrored in users.achievement_bits,
+ * so checking one is a bit test. The cache is per node, so the bit is set in the database
+ * only if it is still clear there, and only the node that set it writes the row. Rank rules
+ * are confirmed against the stored scores, which hold every node's votes.
+ */
+@Service
+public class AchievementService {
+
+    // rank rules only ever hold for this many leading positions
+    private static final int RANK_RULE_DEPTH = 3;
+
+    private static final String GRANT_SQL = "UPDATE users SET achievement_bits = BITOR(COALESCE(achievement_bits, 0), CAST(? AS BIGINT)) "
+        + "WHERE id = ? AND BITAND(COALESCE(achievement_bits, 0), CAST(? AS BIGINT)) = 0";
+
+    // same order as the leaderboard: score descending, then id
+    private static final String STORED_RANK_SQL = "SELECT COUNT(*) + 1 FROM users o, users u WHERE u.id = ? "
+        + "AND (o.total_score > u.total_score OR (o.total_score = u.total_score AND o.id < u.id))";
+
+    private static final String SWEEP_SQL = "SELECT id, username, avatar, total_score, rank, posts_count FROM users "
+        + "WHERE id > ? ORDER BY id LIMIT ?";
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private AchievementRepository achievementRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${reset.chunk-size:5000}")
+    private int sweepChunkSize;
+
+    private final Map<Long, Long> earned = new ConcurrentHashMap<>();
+
+    /**
+     * Loads every user's bits. Users from before the column existed get theirs derived
+     * once from their achievement rows.
+     */
+    @PostConstruct
+    public void load() {
+        List<Long> missing = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, achievement_bits FROM users",
+            rs -> {
+                long bits = rs.getLong("achievement_bits");
+                if (rs.wasNull()) {
+                    missing.add(rs.getLong("id"));
+                }
+                earned.put(rs.getLong("id"), bits);
+            });
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> derived = new HashMap<>();
+        for (Long userId : missing) {
+            derived.put(userId, 0L);
+        }
+        jdbcTemplate.query("SELECT user_id, name FROM achievements",
+            rs -> {
+                AchievementRule rule = AchievementRule.byTitle(rs.getString("name"));
+                long userId = rs.getLong("user_id");
+                if (rule != null && derived.containsKey(userId)) {
+                    derived.put(userId, derived.get(userId) | rule.getBit());
+                }
+            });
+        jdbcTemplate.batchUpdate("UPDATE users SET achievement_bits = ? WHERE id = ?", new ArrayList<>(derived.entrySet()), 500,
+            (ps, entry) -> {
+                ps.setLong(1, entry.getValue());
+                ps.setLong(2, entry.getKey());
+            });
+        earned.putAll(derived);
+    }
+
+    public boolean hasAchievement(Long userId, AchievementRule rule) {
+        return (earned.getOrDefault(userId, 0L) & rule.getBit()) != 0;
+    }
+
+    public void onUserCreated(Long userId) {
+        // a newcomer can still land in the leading positions of a small board
+        onRanksChanged();
+    }
+
+    public void onPostCreated(Long userId) {
+        evaluate(leaderboardService.getEntry(userId), AchievementRule.Event.POST_CREATED);
+    }
+
+    public void onScoreChanged(Long userId) {
+        evaluate(leaderboardService.getEntry(userId), AchievementRule.Event.SCORE_CHANGED);
+        onRanksChanged();
+    }
+
+    /**
+     * Evaluates every rule for every user, a catch-up for anything the events missed. Reads
+     * the stored scores and the ranks the reset just assigned, not this node's leaderboard.
+     */
+    public void evaluateAll() {
+        long afterId = 0;
+        while (true) {
+            List<LeaderboardEntry> chunk = jdbcTemplate.query(SWEEP_SQL,
+                (rs, rowNum) -> new LeaderboardEntry(rs.getLong("id"), rs.getString("username"), rs.getString("avatar"),
+                    rs.getInt("total_score"), rs.getInt("rank"), rs.getInt("posts_count")),
+                afterId, sweepChunkSize);
+            for (LeaderboardEntry entry : chunk) {
+                evaluate(entry, null);
+            }
+            if (chunk.size() < sweepChunkSize) {
+                return;
+            }
+            afterId = chunk.get(chunk.size() - 1).getUserId();
+        }
+    }
+
+    private void onRanksChanged() {
+        for (LeaderboardEntry entry : leaderboardService.getTopEntries(RANK_RULE_DEPTH)) {
+            evaluate(entry, AchievementRule.Event.RANK_CHANGED);
+        }
+    }
+
+    /**
+     * Grants the unearned rules that listen to {@code event}, or all of them if it is null,
+     * and that the user now meets.
+     */
+    private void evaluate(LeaderboardEntry entry, AchievementRule.Event event) {
+        if (entry == null) {
+            return;
+        }
+        long bits = earned.getOrDefault(entry.getUserId(), 0L);
+        LeaderboardEntry stored = null;
+        for (AchievementRule rule : AchievementRule.values()) {
+            if ((bits & rule.getBit()) != 0 || (event != null && !rule.listensTo(event)) || !rule.isMetBy(entry)) {
+                continue;
+            }
+            if (event != null && rule.listensTo(AchievementRule.Event.RANK_CHANGED)) {
+                // this node's rank misses other nodes' votes, so the stored one must agree
+                if (stored == null) {
+                    stored = entry.withRank(storedRank(entry.getUserId()));
+                }
+                if (!rule.isMetBy(stored)) {
+                    continue;
+                }
+            }
+            grant(entry, rule);
+        }
+    }
+
+    private int storedRank(Long userId) {
+        Integer rank = jdbcTemplate.queryForObject(STORED_RANK_SQL, Integer.class, userId);
+        return rank == null ? 0 : rank;
+    }
+
+    private void grant(LeaderboardEntry entry, AchievementRule rule) {
+        long[] before = new long[1];
+        earned.compute(entry.getUserId(), (id, bits) -> {
+            before[0] = bits == null ? 0 : bits;
+            return before[0] | rule.getBit();
+        });
+        // only the caller that flipped the bit writes the grant
+        if ((before[0] & rule.getBit()) != 0) {
+            return;
+        }
+        Boolean granted;
+        try {
+            // the bit and the row commit together, so neither can exist without the other
+            granted = transactionTemplate.execute(status -> {
+                if (jdbcTemplate.update(GRANT_SQL, rule.getBit(), entry.getUserId(), rule.getBit()) == 0) {
+                    // another node set the bit first and wrote the row
+                    return false;
+                }
+                achievementRepository.save(new Achievement(rule.getTitle(), rule.getDescription(), rule.getIcon(),
+                    userRepository.getReferenceById(entry.getUserId())));
+                return true;
+            });
+        } catch (RuntimeException e) {
+            // leave the bit clear so the next event or the nightly sweep grants it again
+            earned.computeIfPresent(entry.getUserId(), (id, bits) -> bits & ~rule.getBit());
+            System.err.println("Error granting achievement " + rule.getTitle() + ": " + e.getMessage());
+            return;
+        }
+        if (Boolean.TRUE.equals(granted)) {
+            System.out.println("Achievement awarded to " + entry.getUsername() + ": " + rule.getTitle());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.LeaderboardEntry;
+import com.insight.backend.index.PrefixIndex;
+import com.insight.backend.model.Post;
+import com.insight.backend.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type-ahead for usernames, ranked by total score, and tags, ranked by how many posts carry
+ * them. Both are {@link PrefixIndex}es loaded from the in-memory leaderboard and tag index,
+ * so completing a prefix never queries the database.
+ */
+@Service
+public class AutocompleteService {
+
+    private static final int MAX_SUGGESTIONS = 20;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private TagIndexService tagIndexService;
+
+    @Value("${autocomplete.tail-capacity:1024}")
+    private int tailCapacity;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Long> tagIds = new HashMap<>();
+    private final List<String> tagNames = new ArrayList<>();
+    private PrefixIndex users;
+    private PrefixIndex tags;
+
+    @PostConstruct
+    public void load() {
+        List<LeaderboardEntry> entries = leaderboardService.getEntries(0, leaderboardService.getUserCount());
+        List<String> userKeys = new ArrayList<>(entries.size());
+        long[] userIds = new long[entries.size()];
+        long[] userScores = new long[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            userKeys.add(entries.get(i).getUsername().toLowerCase(Locale.ROOT));
+            userIds[i] = entries.get(i).getUserId();
+            userScores[i] = entries.get(i).getScore();
+        }
+
+        Map<String, Integer> frequencies = tagIndexService.getFrequencies();
+        List<String> tagKeys = new ArrayList<>(frequencies.size());
+        long[] ids = new long[frequencies.size()];
+        long[] counts = new long[frequencies.size()];
+        lock.writeLock().lock();
+        try {
+            tagIds.clear();
+            tagNames.clear();
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                ids[tagKeys.size()] = tagId(entry.getKey());
+                counts[tagKeys.size()] = entry.getValue();
+                tagKeys.add(entry.getKey());
+            }
+            users = new PrefixIndex(tailCapacity);
+            users.putAll(userKeys, userIds, userScores);
+            tags = new PrefixIndex(tailCapacity);
+            tags.putAll(tagKeys, ids, counts);
+
+            long entryCount = users.size() + tags.size();
+            long bytes = users.memoryBytes() + tags.memoryBytes();
+            System.out.println("Autocomplete index loaded: " + entryCount + " entries in " + bytes + " bytes ("
+                + (entryCount == 0 ? 0 : bytes * 1_000_000 / entryCount) + " bytes per million entries)");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onUserCreated(User user) {
+        lock.writeLock().lock();
+        try {
+            users.put(user.getUsername().toLowerCase(Locale.ROOT), user.getId(), user.getTotalScore());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onScoreChanged(Long userId) {
+        LeaderboardEntry entry = leaderboardService.getEntry(userId);
+        if (entry == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            users.put(entry.getUsername().toLowerCase(Locale.ROOT), userId, entry.getScore());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onPostCreated(Post post) {
+        if (post.getTags() == null) {
+            return;
+        }
+        for (String tag : post.getTags()) {
+            String normalized = tag == null ? "" : TagIndexService.normalize(tag);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            int frequency = tagIndexService.getFrequency(normalized);
+            lock.writeLock().lock();
+            try {
+                tags.put(normalized, tagId(normalized), frequency);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public Map<String, Object> complete(String prefix, int limit) {
+        String key = prefix.trim().toLowerCase(Locale.ROOT);
+        int count = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        long[][] userMatches;
+        long[][] tagMatches;
+        List<Map<String, Object>> tagSuggestions = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            userMatches = users.complete(key, count);
+            tagMatches = tags.complete(key, count);
+            for (int i = 0; i < tagMatches[0].length; i++) {
+                Map<String, Object> suggestion = new LinkedHashMap<>();
+                suggestion.put("tag", tagNames.get((int) tagMatches[0][i]));
+                suggestion.put("count", tagMatches[1][i]);
+                tagSuggestions.add(suggestion);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<LeaderboardEntry> userSuggestions = new ArrayList<>(userMatches[0].length);
+        for (long userId : userMatches[0]) {
+            LeaderboardEntry entry = leaderboardService.getEntry(userId);
+            if (entry != null) {
+                userSuggestions.add(entry);
+            }
+        }
+
+        Map<String, Object> suggestions = new HashMap<>();
+        suggestions.put("prefix", prefix);
+        suggestions.put("users", userSuggestions);
+        suggestions.put("tags", tagSuggestions);
+        return suggestions;
+    }
+
+    private long tagId(String tag) {
+        Long id = tagIds.get(tag);
+        if (id == null) {
+            id = (long) tagNames.size();
+            tagIds.put(tag, id);
+            tagNames.add(tag);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,229 @@
+package com.insight.backend.service;
+
+import com.insight.backend.index.RankTree;
+import com.insight.backend.repository.CommentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * "Best" ordering of comments. Every sibling group, meaning the replies of one comment or the
+ * top-level comments of a post, is a {@link RankTree} keyed by the Wilson score lower bound
+ * of the comments' up and down votes. A post's groups are loaded in one query on first read
+ * and kept in a bounded LRU; votes and new comments then move single entries, so serving a
+ * sorted thread never sorts.
+ */
+@Service
+public class CommentRankingService {
+
+    private static final double Z = 1.96;
+    private static final double KEY_SCALE = 1_000_000_000;
+    private static final long TOP_LEVEL = 0;
+
+    /**
+     * A page of {@link #getSubtree}: the ids, the keyset position after the last of them and
+     * whether more replies follow.
+     */
+    public static final class SubtreePage {
+        private final List<Long> ids;
+        private final List<long[]> last;
+        private final boolean more;
+
+        SubtreePage(List<Long> ids, List<long[]> last, boolean more) {
+            this.ids = ids;
+            this.last = last;
+            this.more = more;
+        }
+
+        public List<Long> getIds() { return ids; }
+
+        public List<long[]> getLast() { return last; }
+
+        public boolean hasMore() { return more; }
+    }
+
+    private static final class PostOrder {
+        final Map<Long, RankTree> groups = new HashMap<>();
+        final Map<Long, Long> parents = new HashMap<>();
+
+        void put(long id, long parentKey, long key) {
+            parents.put(id, parentKey);
+            groups.computeIfAbsent(parentKey, p -> new RankTree()).put(id, key);
+        }
+    }
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Value("${comments.best-cache-size:1000}")
+    private int cacheSize;
+
+    private Map<Long, PostOrder> orders;
+
+    @PostConstruct
+    public void init() {
+        orders = Collections.synchronizedMap(new LinkedHashMap<Long, PostOrder>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, PostOrder> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Lower bound of the 95% Wilson interval for the share of up votes, scaled to a long.
+     * Comments without votes rank as zero, like ones with only down votes.
+     */
+    public static long wilsonKey(int up, int down) {
+        int n = up + down;
+        if (n <= 0) {
+            return 0;
+        }
+        double p = (double) up / n;
+        double z2 = Z * Z;
+        double bound = (p + z2 / (2 * n) - Z * Math.sqrt((p * (1 - p) + z2 / (4 * n)) / n)) / (1 + z2 / n);
+        return Math.round(Math.max(0, bound) * KEY_SCALE);
+    }
+
+    /**
+     * Returns {ids, keys} of the next top-level comments after (afterKey, afterId), best first.
+     */
+    public long[][] getTopLevelPage(Long postId, Long afterKey, Long afterId, int count) {
+        PostOrder order = order(postId);
+        synchronized (order) {
+            RankTree group = order.groups.get(TOP_LEVEL);
+            if (group == null) {
+                return new long[][] {new long[0], new long[0]};
+            }
+            int offset = afterId == null ? 0 : group.countBefore(afterKey, afterId + 1);
+            long[] ids = group.idsFrom(offset, count);
+            long[] keys = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                keys[i] = group.scoreOf(ids[i]);
+            }
+            return new long[][] {ids, keys};
+        }
+    }
+
+    /**
+     * Returns up to {@code count} ids of the comment's subtree in depth-first order with every
+     * sibling group best first, continuing after the keyset position {@code after}, which is
+     * empty for the first page. Parents always precede their replies.
+     */
+    public SubtreePage getSubtree(Long postId, Long commentId, List<long[]> after, int count) {
+        PostOrder order = order(postId);
+        List<Long> ids = new ArrayList<>(count);
+        List<long[]> last = after;
+        boolean more = false;
+        synchronized (order) {
+            // each frame is {parent id, next position in its group, key and id of the child taken last}
+            Deque<long[]> stack = new ArrayDeque<>();
+            stack.push(new long[] {commentId, 0, 0, 0});
+            for (long[] step : after) {
+                long[] frame = stack.peek();
+                RankTree group = order.groups.get(frame[0]);
+                // resume after the step's key, wherever votes have moved it since
+                frame[1] = group == null ? 0 : group.countBefore(step[0], step[1] + 1);
+                frame[2] = step[0];
+                frame[3] = step[1];
+                stack.push(new long[] {step[1], 0, 0, 0});
+            }
+            while (!stack.isEmpty()) {
+                long[] frame = stack.peek();
+                RankTree group = order.groups.get(frame[0]);
+                if (group == null || frame[1] >= group.size()) {
+                    stack.pop();
+                    continue;
+                }
+                if (ids.size() == count) {
+                    more = true;
+                    break;
+                }
+                long child = group.idsFrom((int) frame[1]++, 1)[0];
+                frame[2] = group.scoreOf(child);
+                frame[3] = child;
+                ids.add(child);
+                stack.push(new long[] {child, 0, 0, 0});
+                if (ids.size() == count) {
+                    last = position(stack);
+                }
+            }
+        }
+        return new SubtreePage(ids, last, more);
+    }
+
+    /**
+     * The {key, id} of the child taken last at every level below the subtree root, which is
+     * where a walk with this stack continues from.
+     */
+    private static List<long[]> position(Deque<long[]> stack) {
+        List<long[]> steps = new ArrayList<>(stack.size() - 1);
+        Iterator<long[]> frames = stack.descendingIterator();
+        for (int i = 0; i < stack.size() - 1; i++) {
+            long[] frame = frames.next();
+            steps.add(new long[] {frame[2], frame[3]});
+        }
+        return steps;
+    }
+
+    public void onCommentCreated(Long postId, Long commentId, Long parentCommentId) {
+        PostOrder order = orders.get(postId);
+        if (order == null) {
+            return;
+        }
+        synchronized (order) {
+            order.put(commentId, parentCommentId == null ? TOP_LEVEL : parentCommentId, 0);
+        }
+    }
+
+    public void onVote(Long postId, Long commentId, int upCount, int downCount) {
+        PostOrder order = orders.get(postId);
+        if (order == null) {
+            return;
+        }
+        synchronized (order) {
+            Long parentKey = order.parents.get(commentId);
+            if (parentKey != null) {
+                order.groups.get(parentKey).put(commentId, wilsonKey(upCount, downCount));
+            }
+        }
+    }
+
+    private PostOrder order(Long postId) {
+        PostOrder order = orders.get(postId);
+        if (order != null) {
+            return order;
+        }
+        long version = resourceVersions.commentsVersion(postId);
+        PostOrder loaded = new PostOrder();
+        for (Object[] row : commentRepository.findVoteCountsByPost(postId)) {
+            Long parentId = (Long) row[1];
+            loaded.put((Long) row[0], parentId == null ? TOP_LEVEL : parentId, wilsonKey(toInt(row[2]), toInt(row[3])));
+        }
+        orders.put(postId, loaded);
+        // a write that committed during the load may be missing from it while its update found
+        // nothing to apply to; writers bump the version first, so drop the copy and reload later
+        if (resourceVersions.commentsVersion(postId) != version) {
+            orders.remove(postId, loaded);
+        }
+        return loaded;
+    }
+
+    private static int toInt(Object value) {
+        return value == null ? 0 : (Integer) value;
+    }
+}
@@ -1,19 +1,68 @@
 package com.insight.backend.service;
 
+import com.insight.backend.dto.CommentNode;
+import com.insight.backend.dto.CommentPage;
+import com.insight.backend.dto.CommentVoteResult;
 import com.insight.backend.model.Comment;
 import com.insight.backend.model.Post;
 import com.insight.backend.model.User;
+import com.insight.backend.model.VoteType;
 import com.insight.backend.repository.CommentRepository;
 import com.insight.backend.repository.PostRepository;
 import com.insight.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Comment threads. Every comment stores its top-level ancestor and a materialized path of
+ * fixed-width id segments, so a subtree is one contiguous, creation-ordered range of the
+ * (root_id, path) index and thread pages never walk the tree recursively.
+ */
 @Service
 public class CommentService {
     
+    private static final int PATH_SEGMENT_WIDTH = 12;
+    private static final int MAX_DEPTH = 100;
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int MAX_REPLY_PREVIEW = 20;
+    private static final int MAX_VOTE_ATTEMPTS = 5;
+    
+    public static final String SORT_NEW = "new";
+    public static final String SORT_BEST = "best";
+    
+    private static final String TOP_LEVEL = "top";
+    private static final String SUBTREE = "sub";
+    private static final String BEST_TOP_LEVEL = "best";
+    private static final String BEST_SUBTREE = "bestsub";
+    
+    private static final String REPLY_PREVIEW_SQL =
+        "SELECT * FROM (SELECT c.id, c.parent_comment_id, c.content, c.score, c.created_at, c.root_id, c.path, " +
+        "u.id AS author_id, u.username, ROW_NUMBER() OVER (PARTITION BY c.root_id ORDER BY c.path) AS rn " +
+        "FROM comments c JOIN users u ON u.id = c.user_id " +
+        "WHERE c.root_id IN (%s) AND c.depth > 0 AND c.path IS NOT NULL) t WHERE t.rn <= ? ORDER BY t.path";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
     @Autowired
     private CommentRepository commentRepository;
     
@@ -23,29 +72,435 @@ public class CommentService {
     @Autowired
     private UserRepository userRepository;
     
-    public Comment createComment(String content, Long postId, Long userId, Long parentCommentId) {
+    @Autowired
+    private ResourceVersions resourceVersions;
+    
+    @Autowired
+    private VoteService voteService;
+    
+    @Autowired
+    private CommentRankingService commentRankingService;
+    
+    @Autowired
+    private PostCounterService postCounterService;
+    
+    @Value("${comments.thread-cache-size:1000}")
+    private int threadCacheSize;
+    
+    private static final class CachedThread {
+        final long version;
+        final List<CommentNode> roots;
+        
+        CachedThread(long version, List<CommentNode> roots) {
+            this.version = version;
+            this.roots = roots;
+        }
+    }
+    
+    private Map<Long, CachedThread> threads;
+    
+    @PostConstruct
+    public void init() {
+        threads = Collections.synchronizedMap(new LinkedHashMap<Long, CachedThread>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedThread> eldest) {
+                return size() > threadCacheSize;
+            }
+        });
+        backfillPaths();
+    }
+    
+    /**
+     * Fills in root, depth and path for comments written before those columns existed, one
+     * tree level per statement.
+     */
+    private void backfillPaths() {
+        int updated = jdbcTemplate.update(
+            "UPDATE comments SET root_id = id, depth = 0, path = LPAD(CAST(id AS VARCHAR), " + PATH_SEGMENT_WIDTH + ", '0') " +
+            "WHERE path IS NULL AND parent_comment_id IS NULL");
+        while (updated > 0) {
+            updated = jdbcTemplate.update(
+                "UPDATE comments c SET " +
+                "root_id = (SELECT p.root_id FROM comments p WHERE p.id = c.parent_comment_id), " +
+                "depth = (SELECT p.depth + 1 FROM comments p WHERE p.id = c.parent_comment_id), " +
+                "path = (SELECT p.path FROM comments p WHERE p.id = c.parent_comment_id) || LPAD(CAST(c.id AS VARCHAR), " + PATH_SEGMENT_WIDTH + ", '0') " +
+                "WHERE c.path IS NULL AND EXISTS (SELECT 1 FROM comments p WHERE p.id = c.parent_comment_id AND p.path IS NOT NULL)");
+        }
+    }
+    
+    /**
+     * Returns the new comment as a thread node, built from what the caller already knows
+     * rather than from the entity and its lazy author.
+     */
+    public CommentNode createComment(String content, Long postId, Long userId, String username, Long parentCommentId) {
+        // the insert and the path update commit together, readers never see a comment without a path;
+        // caches are only dropped once it is committed
+        Comment comment = transactionTemplate.execute(status -> insertComment(content, postId, userId, parentCommentId));
+        postCounterService.onCommentCreated(postId);
+        resourceVersions.bumpComments(postId);
+        threads.remove(postId);
+        commentRankingService.onCommentCreated(postId, comment.getId(), parentCommentId);
+        return new CommentNode(comment.getId(), parentCommentId, comment.getContent(), comment.getScore(),
+            comment.getCreatedAt(), userId, username, comment.getPath());
+    }
+    
+    private Comment insertComment(String content, Long postId, Long userId, Long parentCommentId) {
         Post post = postRepository.findById(postId)
             .orElseThrow(() -> new RuntimeException("Post not found"));
         
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+        User user = userRepository.getReferenceById(userId);
         
         Comment comment = new Comment(user, post, content);
+        Comment parentComment = null;
         
         if (parentCommentId != null) {
-            Comment parentComment = commentRepository.findById(parentCommentId)
+            parentComment = commentRepository.findById(parentCommentId)
                 .orElseThrow(() -> new RuntimeException("Parent comment not found"));
+            if (!parentComment.getPost().getId().equals(postId)) {
+                throw new RuntimeException("Parent comment belongs to another post");
+            }
+            if (parentComment.getDepth() >= MAX_DEPTH) {
+                throw new RuntimeException("Reply thread is too deep");
+            }
             comment.setParentComment(parentComment);
+            comment.setRootId(parentComment.getRootId());
+            comment.setDepth(parentComment.getDepth() + 1);
         }
         
+        // the path ends with the comment's own id, so it is only known after the insert
+        comment = commentRepository.save(comment);
+        String segment = pathSegment(comment.getId());
+        if (parentComment == null) {
+            comment.setRootId(comment.getId());
+            comment.setPath(segment);
+        } else {
+            comment.setPath(parentComment.getPath() + segment);
+        }
         return commentRepository.save(comment);
     }
     
+    public CommentVoteResult voteOnComment(Long commentId, Long userId, VoteType voteType) {
+        CommentVoteResult result = null;
+        for (int attempt = 1; result == null; attempt++) {
+            try {
+                result = voteService.applyCommentVote(commentId, userId, voteType);
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                // a concurrent vote by the same user won the race, re-read and apply on top of it
+                if (attempt >= MAX_VOTE_ATTEMPTS) {
+                    throw new RuntimeException("Could not record vote, please retry");
+                }
+            }
+        }
+        
+        resourceVersions.bumpComments(result.getPostId());
+        threads.remove(result.getPostId());
+        commentRankingService.onVote(result.getPostId(), commentId, result.getUpCount(), result.getDownCount());
+        return result;
+    }
+    
+    /**
+     * Returns the top-level comments of the post with their replies nested. The tree is built
+     * from one query and cached until the post's comment version moves on.
+     */
+    public List<CommentNode> getThread(Long postId) {
+        CachedThread cached = threads.get(postId);
+        long version = resourceVersions.commentsVersion(postId);
+        if (cached != null && cached.version == version) {
+            return cached.roots;
+        }
+        
+        // the version is read before the query, so a comment saved meanwhile forces a reload
+        List<CommentNode> roots = assemble(commentRepository.findThreadNodes(postId));
+        threads.put(postId, new CachedThread(version, roots));
+        return roots;
+    }
+    
+    /**
+     * Returns a page of top-level comments, in creation order or best first. Each carries the
+     * first {@code replyLimit} replies of its subtree in the same order, nested, plus the
+     * subtree size and a cursor for the replies left out.
+     */
+    public CommentPage getThreadPage(Long postId, String sort, String cursor, int limit, int replyLimit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int previewSize = Math.max(0, Math.min(replyLimit, MAX_REPLY_PREVIEW));
+        if (SORT_BEST.equals(sort)) {
+            return getBestThreadPage(postId, cursor, pageSize, previewSize);
+        }
+        if (!SORT_NEW.equals(sort)) {
+            throw new IllegalArgumentException("Unknown sort: " + sort);
+        }
+        long afterId = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                afterId = Long.parseLong(decodeCursor(TOP_LEVEL, cursor));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        
+        List<CommentNode> roots = commentRepository.findTopLevelNodesAfter(postId, afterId, PageRequest.of(0, pageSize));
+        if (roots.isEmpty()) {
+            return new CommentPage(roots, null);
+        }
+        Map<Long, CommentNode> rootsById = setReplyCounts(roots);
+        
+        Map<Long, List<CommentNode>> previews = previewSize == 0 ? Collections.emptyMap() : loadReplyPreviews(rootsById, previewSize);
+        for (CommentNode root : roots) {
+            List<CommentNode> replies = previews.getOrDefault(root.getId(), Collections.emptyList());
+            attach(root, replies);
+            if (root.getReplyCount() > replies.size()) {
+                String lastPath = replies.isEmpty() ? root.getPath() : replies.get(replies.size() - 1).getPath();
+                root.setMoreRepliesCursor(encodeCursor(SUBTREE, lastPath));
+            }
+        }
+        
+        String nextCursor = roots.size() == pageSize ? encodeCursor(TOP_LEVEL, String.valueOf(roots.get(roots.size() - 1).getId())) : null;
+        return new CommentPage(roots, nextCursor);
+    }
+    
+    private CommentPage getBestThreadPage(Long postId, String cursor, int pageSize, int previewSize) {
+        Long afterKey = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] key = decodeCursor(BEST_TOP_LEVEL, cursor).split(",");
+            try {
+                afterKey = Long.parseLong(key[0]);
+                afterId = Long.parseLong(key[key.length - 1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        
+        long[][] page = commentRankingService.getTopLevelPage(postId, afterKey, afterId, pageSize);
+        List<Long> ids = new ArrayList<>();
+        Map<Long, CommentRankingService.SubtreePage> previews = new HashMap<>();
+        for (long rootId : page[0]) {
+            ids.add(rootId);
+            CommentRankingService.SubtreePage subtree =
+                commentRankingService.getSubtree(postId, rootId, Collections.<long[]>emptyList(), previewSize);
+            previews.put(rootId, subtree);
+            ids.addAll(subtree.getIds());
+        }
+        Map<Long, CommentNode> nodes = hydrate(ids);
+        
+        List<CommentNode> roots = new ArrayList<>(page[0].length);
+        for (long rootId : page[0]) {
+            if (nodes.containsKey(rootId)) {
+                roots.add(nodes.get(rootId));
+            }
+        }
+        setReplyCounts(roots);
+        for (CommentNode root : roots) {
+            CommentRankingService.SubtreePage subtree = previews.get(root.getId());
+            List<CommentNode> replies = new ArrayList<>();
+            for (Long id : subtree.getIds()) {
+                if (nodes.containsKey(id)) {
+                    replies.add(nodes.get(id));
+                }
+            }
+            attach(root, replies);
+            if (subtree.hasMore()) {
+                root.setMoreRepliesCursor(encodeCursor(BEST_SUBTREE, encodePosition(subtree.getLast())));
+            }
+        }
+        
+        int count = page[0].length;
+        String nextCursor = count == pageSize ? encodeCursor(BEST_TOP_LEVEL, page[1][count - 1] + "," + page[0][count - 1]) : null;
+        return new CommentPage(roots, nextCursor);
+    }
+    
+    /**
+     * Returns the next replies anywhere below the comment, in thread order. Replies whose
+     * parent was on an earlier page are returned at the top level and carry parentCommentId.
+     * Best-first pages continue after the (key, id) of the last reply and its ancestors.
+     */
+    public CommentPage getRepliesPage(Long commentId, String sort, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Comment comment = commentRepository.findById(commentId)
+            .orElseThrow(() -> new RuntimeException("Comment not found"));
+        if (SORT_BEST.equals(sort)) {
+            return getBestRepliesPage(comment, cursor, pageSize);
+        }
+        if (!SORT_NEW.equals(sort)) {
+            throw new IllegalArgumentException("Unknown sort: " + sort);
+        }
+        String afterPath = comment.getPath();
+        if (cursor != null && !cursor.isEmpty()) {
+            afterPath = decodeCursor(SUBTREE, cursor);
+            if (!afterPath.startsWith(comment.getPath())) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        
+        String prefix = comment.getPath() + "%";
+        List<CommentNode> nodes = commentRepository.findSubtreeNodesAfter(comment.getRootId(), prefix, afterPath, PageRequest.of(0, pageSize + 1));
+        String nextCursor = null;
+        if (nodes.size() > pageSize) {
+            nodes = nodes.subList(0, pageSize);
+            nextCursor = encodeCursor(SUBTREE, nodes.get(pageSize - 1).getPath());
+        }
+        return new CommentPage(assemble(nodes), nextCursor);
+    }
+    
+    private CommentPage getBestRepliesPage(Comment comment, String cursor, int pageSize) {
+        List<long[]> after = Collections.emptyList();
+        if (cursor != null && !cursor.isEmpty()) {
+            after = decodePosition(decodeCursor(BEST_SUBTREE, cursor));
+        }
+        
+        CommentRankingService.SubtreePage page = commentRankingService.getSubtree(comment.getPost().getId(), comment.getId(), after, pageSize);
+        List<Long> ids = page.getIds();
+        String nextCursor = page.hasMore() ? encodeCursor(BEST_SUBTREE, encodePosition(page.getLast())) : null;
+        Map<Long, CommentNode> nodes = hydrate(ids);
+        List<CommentNode> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (nodes.containsKey(id)) {
+                ordered.add(nodes.get(id));
+            }
+        }
+        return new CommentPage(assemble(ordered), nextCursor);
+    }
+    
+    private Map<Long, CommentNode> hydrate(List<Long> ids) {
+        Map<Long, CommentNode> nodes = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (CommentNode node : commentRepository.findNodesByIdIn(ids)) {
+                nodes.put(node.getId(), node);
+            }
+        }
+        return nodes;
+    }
+    
+    private Map<Long, CommentNode> setReplyCounts(List<CommentNode> roots) {
+        Map<Long, CommentNode> rootsById = new HashMap<>();
+        for (CommentNode root : roots) {
+            rootsById.put(root.getId(), root);
+            root.setReplyCount(0L);
+        }
+        if (!rootsById.isEmpty()) {
+            for (Object[] row : commentRepository.countRepliesByRoot(new ArrayList<>(rootsById.keySet()))) {
+                rootsById.get((Long) row[0]).setReplyCount((Long) row[1]);
+            }
+        }
+        return rootsById;
+    }
+    
+    private Map<Long, List<CommentNode>> loadReplyPreviews(Map<Long, CommentNode> rootsById, int previewSize) {
+        List<Object> args = new ArrayList<>(rootsById.keySet());
+        args.add(previewSize);
+        String placeholders = String.join(", ", Collections.nCopies(rootsById.size(), "?"));
+        Map<Long, List<CommentNode>> previews = new HashMap<>();
+        jdbcTemplate.query(String.format(REPLY_PREVIEW_SQL, placeholders),
+            rs -> {
+                CommentNode node = new CommentNode(rs.getLong("id"), rs.getLong("parent_comment_id"), rs.getString("content"),
+                    rs.getInt("score"), rs.getTimestamp("created_at").toLocalDateTime(),
+                    rs.getLong("author_id"), rs.getString("username"), rs.getString("path"));
+                previews.computeIfAbsent(rs.getLong("root_id"), id -> new ArrayList<>()).add(node);
+            },
+            args.toArray());
+        return previews;
+    }
+    
+    /**
+     * Hangs path-ordered descendants under {@code root}; every parent precedes its replies.
+     */
+    private void attach(CommentNode root, List<CommentNode> descendants) {
+        Map<Long, CommentNode> byId = new HashMap<>(descendants.size() * 2 + 2);
+        byId.put(root.getId(), root);
+        for (CommentNode node : descendants) {
+            byId.put(node.getId(), node);
+            CommentNode parent = byId.get(node.getParentCommentId());
+            if (parent != null) {
+                parent.getReplies().add(node);
+            }
+        }
+    }
+    
+    private static String pathSegment(Long id) {
+        String digits = Long.toString(id);
+        StringBuilder segment = new StringBuilder(PATH_SEGMENT_WIDTH);
+        for (int i = digits.length(); i < PATH_SEGMENT_WIDTH; i++) {
+            segment.append('0');
+        }
+        return segment.append(digits).toString();
+    }
+    
+    private static String encodeCursor(String kind, String key) {
+        String raw = kind + "|" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Writes a subtree position as "key,id" steps separated by "/", empty at the start.
+     */
+    private static String encodePosition(List<long[]> steps) {
+        StringBuilder position = new StringBuilder();
+        for (long[] step : steps) {
+            if (position.length() > 0) {
+                position.append('/');
+            }
+            position.append(step[0]).append(',').append(step[1]);
+        }
+        return position.toString();
+    }
+    
+    private static List<long[]> decodePosition(String position) {
+        List<long[]> steps = new ArrayList<>();
+        if (position.isEmpty()) {
+            return steps;
+        }
+        try {
+            for (String step : position.split("/")) {
+                String[] pair = step.split(",");
+                if (pair.length != 2 || steps.size() > MAX_DEPTH) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                steps.add(new long[] {Long.parseLong(pair[0]), Long.parseLong(pair[1])});
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return steps;
+    }
+    
+    private static String decodeCursor(String kind, String cursor) {
+        String[] key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (key.length != 2 || !key[0].equals(kind)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return key[1];
+    }
+    
+    private List<CommentNode> assemble(List<CommentNode> nodes) {
+        Map<Long, CommentNode> byId = new HashMap<>(nodes.size() * 2);
+        for (CommentNode node : nodes) {
+            byId.put(node.getId(), node);
+        }
+        List<CommentNode> roots = new ArrayList<>();
+        for (CommentNode node : nodes) {
+            CommentNode parent = node.getParentCommentId() == null ? null : byId.get(node.getParentCommentId());
+            if (parent == null) {
+                roots.add(node);
+            } else {
+                parent.getReplies().add(node);
+            }
+        }
+        return Collections.unmodifiableList(roots);
+    }
+    
     public List<Comment> getCommentsByPost(Long postId) {
         return commentRepository.findByPostIdOrderByCreatedAtAsc(postId);
     }
     
-    public List<Comment> getReplies(Long commentId) {
-        return commentRepository.findByParentCommentIdOrderByCreatedAtAsc(commentId);
+    /**
+     * The direct replies to a comment, oldest first, without their own replies.
+     */
+    public List<CommentNode> getReplies(Long commentId) {
+        return commentRepository.findChildNodes(commentId);
     }
 }
\ No newline at end of file
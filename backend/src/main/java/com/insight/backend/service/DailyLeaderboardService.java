@@ -0,0 +1,169 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.AuthorScore;
+import com.insight.backend.dto.LeaderboardEntry;
+import com.insight.backend.index.RankTree;
+import com.insight.backend.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-day user leaderboards. Today's scores live in a {@link RankTree} fed by every vote;
+ * at the daily reset the day is frozen into rank-ordered arrays and kept in a ring buffer
+ * of the last few days, so none of the daily views need a query.
+ */
+@Service
+public class DailyLeaderboardService {
+    
+    private static final int MAX_LIMIT = 100;
+    
+    private static final class FrozenDay {
+        final LocalDate day;
+        final long[] userIds;
+        final long[] scores;
+        
+        FrozenDay(LocalDate day, long[] userIds, long[] scores) {
+            this.day = day;
+            this.userIds = userIds;
+            this.scores = scores;
+        }
+    }
+    
+    @Autowired
+    private PostRepository postRepository;
+    
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
+    @Value("${leaderboard.daily.history-days:7}")
+    private int historyDays;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private RankTree today = new RankTree();
+    private volatile LocalDate currentDay;
+    private FrozenDay[] history;
+    private int head;
+    
+    @PostConstruct
+    public void load() {
+        history = new FrozenDay[historyDays];
+        currentDay = LocalDate.now();
+        reloadToday();
+    }
+    
+    /**
+     * Rebuilds today's scores from the posts table, which also holds other nodes' votes.
+     */
+    public void reloadToday() {
+        RankTree loaded = new RankTree();
+        // post scores are zeroed at every reset, so their sum per author is today's score
+        for (AuthorScore row : postRepository.sumScoresByAuthor()) {
+            if (row.getScore() != null && row.getScore() != 0) {
+                loaded.put(row.getUserId(), row.getScore());
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            today = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void onScoreChanged(Long userId, int scoreChange) {
+        lock.writeLock().lock();
+        try {
+            today.put(userId, today.scoreOf(userId) + scoreChange);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Freezes the running day and starts {@code newDay}. Calling it again for the same day
+     * does nothing.
+     */
+    public void rollover(LocalDate newDay) {
+        lock.writeLock().lock();
+        try {
+            if (!newDay.isAfter(currentDay)) {
+                return;
+            }
+            long[] userIds = today.idsFrom(0, today.size());
+            long[] scores = new long[userIds.length];
+            for (int i = 0; i < userIds.length; i++) {
+                scores[i] = today.scoreOf(userIds[i]);
+            }
+            history[head] = new FrozenDay(currentDay, userIds, scores);
+            head = (head + 1) % history.length;
+            today = new RankTree();
+            currentDay = newDay;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public LocalDate getCurrentDay() {
+        return currentDay;
+    }
+    
+    public List<LeaderboardEntry> getToday(int limit) {
+        lock.readLock().lock();
+        try {
+            long[] userIds = today.idsFrom(0, clamp(limit));
+            long[] scores = new long[userIds.length];
+            for (int i = 0; i < userIds.length; i++) {
+                scores[i] = today.scoreOf(userIds[i]);
+            }
+            return toEntries(userIds, scores, userIds.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Returns the frozen standings of a past day, or null when it is older than the buffer.
+     */
+    public List<LeaderboardEntry> getDay(LocalDate day, int limit) {
+        if (!day.isBefore(currentDay)) {
+            return day.equals(currentDay) ? getToday(limit) : null;
+        }
+        FrozenDay frozen = null;
+        lock.readLock().lock();
+        try {
+            for (FrozenDay candidate : history) {
+                if (candidate != null && candidate.day.equals(day)) {
+                    frozen = candidate;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (frozen == null) {
+            return null;
+        }
+        return toEntries(frozen.userIds, frozen.scores, Math.min(clamp(limit), frozen.userIds.length));
+    }
+    
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+    
+    private List<LeaderboardEntry> toEntries(long[] userIds, long[] scores, int count) {
+        List<LeaderboardEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LeaderboardEntry user = leaderboardService.getEntry(userIds[i]);
+            if (user != null) {
+                entries.add(user.withScore((int) scores[i]).withRank(i + 1));
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,298 @@
+package com.insight.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * The daily reset as a staged job for one business date. Every finished stage, and every
+ * finished id-range partition of the score reset, is checkpointed in reset_checkpoints; a
+ * rerun for the same date skips what is recorded and redoes the rest, which is safe because
+ * each unit is idempotent. Score partitions run in parallel on a fork-join pool. A job that
+ * a crash or failure left unfinished is resumed only within the resume window after its
+ * midnight; later, resetting would wipe the scores earned since, so it is abandoned. The job runs
+ * under the {@link #LEASE} lease, so only one node of a cluster does the work.
+ */
+@Service
+public class DailyResetService {
+
+    public static final String LEASE = "daily-reset";
+
+    public enum Stage {
+        RANK_SNAPSHOT,
+        RESET_SCORES,
+        PERSIST_RANKS,
+        ACHIEVEMENTS
+    }
+
+    private static final String STARTED = "STARTED";
+    private static final String FINISHED = "FINISHED";
+    private static final String ABANDONED = "ABANDONED";
+    private static final String FAILED = "FAILED";
+    private static final int MAX_ERROR_LENGTH = 4000;
+    private static final long WHOLE_STAGE = -1;
+
+    private static final String CHECKPOINT_SQL =
+        "MERGE INTO reset_checkpoints (business_date, stage, range_from, range_to, rows_affected, duration_ms, completed_at) " +
+        "KEY (business_date, stage, range_from) VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    private static final String UNFINISHED_SQL =
+        "SELECT s.business_date FROM reset_checkpoints s WHERE s.stage = ? AND NOT EXISTS (" +
+        "SELECT 1 FROM reset_checkpoints f WHERE f.business_date = s.business_date AND f.stage IN (?, ?)) " +
+        "ORDER BY s.business_date";
+
+    private static final String FAILURE_SQL =
+        "MERGE INTO reset_checkpoints (business_date, stage, range_from, range_to, rows_affected, duration_ms, completed_at, error) " +
+        "KEY (business_date, stage, range_from) VALUES (?, ?, ?, ?, 0, 0, CURRENT_TIMESTAMP, ?)";
+
+    @Autowired
+    private RankHistoryService rankHistoryService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private VoteScoreAggregator voteScoreAggregator;
+
+    @Autowired
+    private LeaseService leaseService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${reset.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${reset.parallelism:0}")
+    private int parallelism;
+
+    @Value("${reset.checkpoint-retention-days:30}")
+    private int retentionDays;
+
+    @Value("${reset.resume-window-minutes:120}")
+    private long resumeWindowMinutes;
+
+    private final ReentrantLock running = new ReentrantLock();
+
+    /**
+     * Finishes a job a crash interrupted, as long as its midnight is within the resume window.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeAtStartup() {
+        leaseService.runExclusive(LEASE, this::resumeUnfinished);
+    }
+
+    public void resumeUnfinished(LeaseService.Lease lease) {
+        List<LocalDate> unfinished = jdbcTemplate.query(UNFINISHED_SQL,
+            (rs, rowNum) -> rs.getDate(1).toLocalDate(), STARTED, FINISHED, ABANDONED);
+        for (LocalDate businessDate : unfinished) {
+            resumeWithinWindow(businessDate, lease);
+        }
+    }
+
+    /**
+     * Runs or resumes the reset for the date while its midnight is within the resume window.
+     * Later, resetting would wipe the scores earned since, so the job is abandoned instead.
+     */
+    public void resumeWithinWindow(LocalDate businessDate, LeaseService.Lease lease) {
+        if (isDone(businessDate)) {
+            return;
+        }
+        LocalDateTime windowEnd = businessDate.plusDays(1).atStartOfDay().plusMinutes(resumeWindowMinutes);
+        if (LocalDateTime.now().isBefore(windowEnd)) {
+            System.out.println("Resuming the daily reset for " + businessDate);
+            run(businessDate, lease);
+        } else {
+            checkpoint(businessDate, ABANDONED, WHOLE_STAGE, WHOLE_STAGE, 0, 0);
+            System.err.println("ALERT: abandoned the daily reset for " + businessDate + ", its resume window closed at "
+                + windowEnd + "; stages without a checkpoint did not run and need a manual fix");
+        }
+    }
+
+    /**
+     * True once the reset for the date has finished or been abandoned, on any node.
+     */
+    public boolean isDone(LocalDate businessDate) {
+        Integer closed = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM reset_checkpoints WHERE business_date = ? AND stage IN (?, ?)",
+            Integer.class, Date.valueOf(businessDate), FINISHED, ABANDONED);
+        return closed != null && closed > 0;
+    }
+
+    /**
+     * Runs, or resumes, the reset for the day that just ended, checking before every unit of
+     * work that the lease is still held. Returns false if that day was already reset.
+     */
+    public boolean run(LocalDate businessDate, LeaseService.Lease lease) {
+        running.lock();
+        try {
+            Map<String, Map<Long, Long>> done = loadCheckpoints(businessDate);
+            if (done.containsKey(FINISHED) || done.containsKey(ABANDONED)) {
+                return false;
+            }
+            long started = System.currentTimeMillis();
+            checkpoint(businessDate, STARTED, WHOLE_STAGE, WHOLE_STAGE, 0, 0);
+            List<String> report = new ArrayList<>();
+
+            runStage(businessDate, lease, Stage.RANK_SNAPSHOT, done, report, () -> {
+                rankHistoryService.recordSnapshot(businessDate);
+                long[] footprint = rankHistoryService.getFootprint();
+                System.out.println("Rank history snapshot recorded: " + footprint[0] + " user-days in " + footprint[1]
+                    + " bytes (" + (footprint[0] == 0 ? 0 : footprint[1] * 1_000_000 / footprint[0]) + " bytes per million user-days)");
+                return footprint[0];
+            });
+            runStage(businessDate, lease, Stage.RESET_SCORES, done, report,
+                () -> resetScores(businessDate, lease, done.getOrDefault(Stage.RESET_SCORES.name(), new HashMap<>())));
+            runStage(businessDate, lease, Stage.PERSIST_RANKS, done, report, userService::updateUserRanks);
+            runStage(businessDate, lease, Stage.ACHIEVEMENTS, done, report, () -> {
+                userService.checkAndAwardAchievements();
+                return 0;
+            });
+
+            long elapsed = System.currentTimeMillis() - started;
+            checkpoint(businessDate, FINISHED, WHOLE_STAGE, WHOLE_STAGE, 0, elapsed);
+            System.out.println("Daily reset for " + businessDate + " finished in " + elapsed + " ms:");
+            for (String line : report) {
+                System.out.println("  " + line);
+            }
+            jdbcTemplate.update("DELETE FROM reset_checkpoints WHERE business_date < ?",
+                Date.valueOf(businessDate.minusDays(retentionDays)));
+            refreshLocalViews();
+            return true;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /**
+     * Records why an attempt at the reset for the date failed, stack trace included, in the
+     * date's FAILED row; a later failure replaces it. The row does not close the job, so a
+     * retry still resumes it.
+     */
+    public void recordFailure(LocalDate businessDate, Throwable failure) {
+        StringWriter trace = new StringWriter();
+        failure.printStackTrace(new PrintWriter(trace));
+        String error = trace.toString();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        jdbcTemplate.update(FAILURE_SQL, Date.valueOf(businessDate), FAILED, WHOLE_STAGE, WHOLE_STAGE, error);
+    }
+
+    /**
+     * Rebuilds this node's in-memory views from the tables once a reset has been applied,
+     * here or on another node. They are built from this node's own writes between resets.
+     */
+    public void refreshLocalViews() {
+        postService.onScoresReset();
+        userService.reloadStandings();
+    }
+
+    private void runStage(LocalDate businessDate, LeaseService.Lease lease, Stage stage, Map<String, Map<Long, Long>> done, List<String> report, LongSupplier work) {
+        Map<Long, Long> stageDone = done.get(stage.name());
+        if (stageDone != null && stageDone.containsKey(WHOLE_STAGE)) {
+            report.add(stage + " done in an earlier run (" + stageDone.get(WHOLE_STAGE) + " ms)");
+            return;
+        }
+        leaseService.assertHeld(lease);
+        long started = System.currentTimeMillis();
+        long rows = work.getAsLong();
+        long elapsed = System.currentTimeMillis() - started;
+        checkpoint(businessDate, stage.name(), WHOLE_STAGE, WHOLE_STAGE, rows, elapsed);
+        report.add(stage + " " + elapsed + " ms, " + rows + " rows");
+    }
+
+    /**
+     * Zeroes scores one id-range partition at a time, partitions in parallel. Ranges are
+     * aligned to the chunk size, so a rerun derives the same ones and skips those recorded.
+     */
+    private long resetScores(LocalDate businessDate, LeaseService.Lease lease, Map<Long, Long> donePartitions) {
+        voteScoreAggregator.flush();
+        long[] bounds = postService.getIdBounds();
+        List<long[]> partitions = new ArrayList<>();
+        for (long from = bounds[0] / chunkSize * chunkSize; from <= bounds[1]; from += chunkSize) {
+            if (!donePartitions.containsKey(from)) {
+                partitions.add(new long[] {from, from + chunkSize});
+            }
+        }
+        if (!donePartitions.isEmpty()) {
+            System.out.println("Post score reset: " + donePartitions.size() + " partitions already done, " + partitions.size() + " left");
+        }
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicLong rows = new AtomicLong();
+        long started = System.currentTimeMillis();
+        List<Callable<Long>> tasks = new ArrayList<>(partitions.size());
+        for (long[] partition : partitions) {
+            tasks.add(() -> {
+                leaseService.assertHeld(lease);
+                long partitionStarted = System.currentTimeMillis();
+                long reset = postService.resetScoresInRange(partition[0], partition[1]);
+                checkpoint(businessDate, Stage.RESET_SCORES.name(), partition[0], partition[1], reset,
+                    System.currentTimeMillis() - partitionStarted);
+                long total = rows.addAndGet(reset);
+                int count = completed.incrementAndGet();
+                if (count % 10 == 0 || count == partitions.size()) {
+                    System.out.println("Post score reset: " + count + "/" + partitions.size() + " partitions, " + total
+                        + " rows reset, " + (System.currentTimeMillis() - started) + " ms");
+                }
+                return reset;
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        try {
+            for (Future<Long> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Post score reset interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Post score reset failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        postService.onScoresReset();
+        return rows.get();
+    }
+
+    private Map<String, Map<Long, Long>> loadCheckpoints(LocalDate businessDate) {
+        Map<String, Map<Long, Long>> done = new HashMap<>();
+        jdbcTemplate.query("SELECT stage, range_from, duration_ms FROM reset_checkpoints WHERE business_date = ?",
+            rs -> {
+                done.computeIfAbsent(rs.getString("stage"), stage -> new HashMap<>())
+                    .put(rs.getLong("range_from"), rs.getLong("duration_ms"));
+            },
+            Date.valueOf(businessDate));
+        return done;
+    }
+
+    private void checkpoint(LocalDate businessDate, String stage, long rangeFrom, long rangeTo, long rows, long durationMs) {
+        jdbcTemplate.update(CHECKPOINT_SQL, Date.valueOf(businessDate), stage, rangeFrom, rangeTo, rows, durationMs);
+    }
+}
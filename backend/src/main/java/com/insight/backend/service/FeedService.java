@@ -0,0 +1,180 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.FeedPage;
+import com.insight.backend.dto.PostSummary;
+import com.insight.backend.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset-paginated post feed. The cursor is the opaque encoding of the last row's sort key,
+ * so every page is an index range scan no matter how deep the client has scrolled. The hot
+ * sort seeks the same way into {@link HotRankingService} instead of the posts table.
+ */
+@Service
+public class FeedService {
+    
+    public static final String SORT_TOP = "top";
+    public static final String SORT_NEW = "new";
+    public static final String SORT_HOT = "hot";
+    
+    private static final String TAGGED = "tags";
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_FACETS = 20;
+    
+    @Autowired
+    private PostRepository postRepository;
+    
+    @Autowired
+    private HotRankingService hotRankingService;
+    
+    @Autowired
+    private TagIndexService tagIndexService;
+    
+    public FeedPage getFeed(String sort, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Pageable page = PageRequest.of(0, pageSize + 1);
+        String[] key = cursor == null || cursor.isEmpty() ? null : decodeCursor(sort, cursor);
+        
+        if (SORT_HOT.equals(sort)) {
+            return getHotFeed(key, pageSize);
+        }
+        
+        if (!SORT_TOP.equals(sort) && !SORT_NEW.equals(sort)) {
+            throw new IllegalArgumentException("Unknown sort: " + sort);
+        }
+        List<PostSummary> rows;
+        try {
+            if (SORT_TOP.equals(sort)) {
+                rows = key == null
+                    ? postRepository.findTopSummaries(page)
+                    : postRepository.findTopSummariesAfter(Integer.valueOf(key[1]), Long.valueOf(key[2]), page);
+            } else {
+                rows = key == null
+                    ? postRepository.findNewestSummaries(page)
+                    : postRepository.findNewestSummariesAfter(LocalDateTime.parse(key[1]), Long.valueOf(key[2]), page);
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        
+        if (rows.size() <= pageSize) {
+            return new FeedPage(rows, null);
+        }
+        List<PostSummary> posts = rows.subList(0, pageSize);
+        PostSummary last = posts.get(pageSize - 1);
+        String sortKey = SORT_TOP.equals(sort) ? String.valueOf(last.getScore()) : last.getCreatedAt().toString();
+        return new FeedPage(posts, encodeCursor(sort, sortKey, last.getId()));
+    }
+    
+    /**
+     * Newest-first page of the posts matching the tags, with tag counts over all matches.
+     */
+    public FeedPage getTaggedFeed(List<String> tags, boolean matchAll, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String[] key = cursor == null || cursor.isEmpty() ? null : decodeCursor(TAGGED, cursor);
+        
+        long[] matched = tagIndexService.findPostIds(tags, matchAll);
+        int end = matched.length;
+        if (key != null) {
+            try {
+                int position = Arrays.binarySearch(matched, Long.parseLong(key[2]));
+                end = position >= 0 ? position : -position - 1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        int start = Math.max(0, end - pageSize);
+        
+        List<Long> ids = new ArrayList<>(end - start);
+        for (int i = end - 1; i >= start; i--) {
+            ids.add(matched[i]);
+        }
+        List<PostSummary> posts = hydrate(ids);
+        String nextCursor = start > 0 ? encodeCursor(TAGGED, "", matched[start]) : null;
+        return new FeedPage(posts, nextCursor, tagIndexService.countTags(matched, MAX_FACETS));
+    }
+    
+    private FeedPage getHotFeed(String[] key, int pageSize) {
+        long[][] hot;
+        try {
+            if (key == null) {
+                hot = hotRankingService.getPage(null, null, null, pageSize + 1);
+            } else {
+                // the sort key is "hot key:decay epoch"
+                String[] hotKey = key[1].split(":");
+                Long epoch = hotKey.length > 1 ? Long.valueOf(hotKey[1]) : null;
+                hot = hotRankingService.getPage(Long.valueOf(hotKey[0]), Long.valueOf(key[2]), epoch, pageSize + 1);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int count = Math.min(hot[0].length, pageSize);
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(hot[0][i]);
+        }
+        
+        List<PostSummary> posts = new ArrayList<>(count);
+        Map<Long, Integer> scores = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            scores.put(hot[0][i], (int) hot[2][i]);
+        }
+        for (PostSummary summary : hydrate(ids)) {
+            // the index score includes votes still buffered for write-behind
+            posts.add(summary.withScore(scores.get(summary.getId())));
+        }
+        if (hot[0].length <= pageSize) {
+            return new FeedPage(posts, null);
+        }
+        return new FeedPage(posts, encodeCursor(SORT_HOT, hot[1][count - 1] + ":" + hot[3][0], hot[0][count - 1]));
+    }
+    
+    private List<PostSummary> hydrate(List<Long> ids) {
+        Map<Long, PostSummary> found = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (PostSummary summary : postRepository.findSummariesByIdIn(ids)) {
+                found.put(summary.getId(), summary);
+            }
+        }
+        List<PostSummary> posts = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            PostSummary summary = found.get(id);
+            if (summary != null) {
+                posts.add(summary);
+            }
+        }
+        return posts;
+    }
+    
+    private static String encodeCursor(String sort, String sortKey, Long id) {
+        String raw = sort + "|" + sortKey + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String[] decodeCursor(String sort, String cursor) {
+        String[] key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (key.length != 3 || !key[0].equals(sort)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return key;
+    }
+}
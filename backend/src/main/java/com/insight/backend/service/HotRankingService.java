@@ -0,0 +1,216 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.PostSummary;
+import com.insight.backend.index.RankTree;
+import com.insight.backend.model.Post;
+import com.insight.backend.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Hot" ordering of recent posts: (score + weight * vote velocity) / (age in hours + 2)^gravity,
+ * where velocity is the post's score change decayed with a fixed half-life. The values sit in
+ * a {@link RankTree} that is updated on every vote and re-decayed for all posts on a fixed
+ * delay, so a feed page is a seek plus a range read. Posts older than the window drop out.
+ * Every re-decay starts a new decay epoch; a cursor from an older epoch is continued after
+ * its post's current place, so a page that spans a re-decay can repeat or skip posts whose
+ * relative order changed in between.
+ */
+@Service
+public class HotRankingService {
+
+    private static final double KEY_SCALE = 1_000_000;
+
+    private static final class HotPost {
+        final long createdAt;
+        int score;
+        double velocity;
+        long velocityAt;
+
+        HotPost(long createdAt, int score) {
+            this.createdAt = createdAt;
+            this.score = score;
+            this.velocityAt = createdAt;
+        }
+    }
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Value("${posts.hot.gravity:1.8}")
+    private double gravity;
+
+    @Value("${posts.hot.velocity-weight:1.0}")
+    private double velocityWeight;
+
+    @Value("${posts.hot.velocity-half-life-minutes:60}")
+    private long velocityHalfLifeMinutes;
+
+    @Value("${posts.hot.window-hours:168}")
+    private long windowHours;
+
+    private final RankTree tree = new RankTree();
+    private final Map<Long, HotPost> posts = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long decayEpoch;
+
+    @PostConstruct
+    public void load() {
+        long now = System.currentTimeMillis();
+        LocalDateTime since = LocalDateTime.now().minusHours(windowHours);
+        lock.writeLock().lock();
+        try {
+            tree.clear();
+            posts.clear();
+            for (PostSummary summary : postRepository.findSummariesCreatedSince(since)) {
+                HotPost post = new HotPost(toMillis(summary.getCreatedAt()), summary.getScore());
+                posts.put(summary.getId(), post);
+                tree.put(summary.getId(), hotKey(post, now));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onPostCreated(Post post) {
+        lock.writeLock().lock();
+        try {
+            HotPost hotPost = new HotPost(toMillis(post.getCreatedAt()), post.getScore());
+            posts.put(post.getId(), hotPost);
+            tree.put(post.getId(), hotKey(hotPost, System.currentTimeMillis()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onVote(Long postId, int score, int scoreChange) {
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            HotPost post = posts.get(postId);
+            if (post == null) {
+                return;
+            }
+            post.velocity = decayedVelocity(post, now) + scoreChange;
+            post.velocityAt = now;
+            post.score = score;
+            tree.put(postId, hotKey(post, now));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reloads the window from the posts table after a reset, which also brings in posts and
+     * scores from other nodes. Velocities of posts already known here are kept.
+     */
+    public void onScoresReset() {
+        LocalDateTime since = LocalDateTime.now().minusHours(windowHours);
+        List<PostSummary> loaded = postRepository.findSummariesCreatedSince(since);
+        lock.writeLock().lock();
+        try {
+            Map<Long, HotPost> known = new HashMap<>(posts);
+            tree.clear();
+            posts.clear();
+            for (PostSummary summary : loaded) {
+                HotPost post = known.get(summary.getId());
+                if (post == null) {
+                    post = new HotPost(toMillis(summary.getCreatedAt()), summary.getScore());
+                }
+                post.score = summary.getScore();
+                posts.put(summary.getId(), post);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        redecay();
+    }
+
+    /**
+     * Recomputes every value at the current time and drops posts that left the window. Cached
+     * hot pages are only invalidated if the order actually changed.
+     */
+    @Scheduled(fixedDelayString = "${posts.hot.redecay-interval-ms:60000}", initialDelayString = "${posts.hot.redecay-interval-ms:60000}")
+    public void redecay() {
+        long now = System.currentTimeMillis();
+        long oldest = now - windowHours * 3_600_000L;
+        boolean reordered;
+        lock.writeLock().lock();
+        try {
+            long[] before = tree.idsFrom(0, tree.size());
+            Iterator<Map.Entry<Long, HotPost>> iterator = posts.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, HotPost> entry = iterator.next();
+                if (entry.getValue().createdAt < oldest) {
+                    tree.remove(entry.getKey());
+                    iterator.remove();
+                } else {
+                    tree.put(entry.getKey(), hotKey(entry.getValue(), now));
+                }
+            }
+            decayEpoch++;
+            reordered = !Arrays.equals(before, tree.idsFrom(0, tree.size()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (reordered) {
+            resourceVersions.bumpHot();
+        }
+    }
+
+    /**
+     * Returns {ids, hot keys, scores, {decay epoch}} of up to {@code count} posts ordered after
+     * the given key, or from the start when {@code afterId} is null. A key from another decay
+     * epoch is replaced by the post's current key while the post is still ranked.
+     */
+    public long[][] getPage(Long afterKey, Long afterId, Long afterEpoch, int count) {
+        lock.readLock().lock();
+        try {
+            long seekKey = afterKey == null ? 0 : afterKey;
+            if (afterId != null && (afterEpoch == null || afterEpoch != decayEpoch) && tree.contains(afterId)) {
+                seekKey = tree.scoreOf(afterId);
+            }
+            int offset = afterId == null ? 0 : tree.countBefore(seekKey, afterId + 1);
+            long[] ids = tree.idsFrom(offset, count);
+            long[] keys = new long[ids.length];
+            long[] scores = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                keys[i] = tree.scoreOf(ids[i]);
+                scores[i] = posts.get(ids[i]).score;
+            }
+            return new long[][] {ids, keys, scores, {decayEpoch}};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long hotKey(HotPost post, long now) {
+        double ageHours = Math.max(0, now - post.createdAt) / 3_600_000.0;
+        double hot = (post.score + velocityWeight * decayedVelocity(post, now)) / Math.pow(ageHours + 2, gravity);
+        return Math.round(hot * KEY_SCALE);
+    }
+
+    private double decayedVelocity(HotPost post, long now) {
+        double halfLives = Math.max(0, now - post.velocityAt) / (velocityHalfLifeMinutes * 60_000.0);
+        return post.velocity * Math.pow(0.5, halfLives);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
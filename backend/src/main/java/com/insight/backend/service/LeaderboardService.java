@@ -0,0 +1,187 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.LeaderboardEntry;
+import com.insight.backend.index.RankTree;
+import com.insight.backend.model.User;
+import com.insight.backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory leaderboard. Ranks are answered from a {@link RankTree}, which each node keeps
+ * for itself, so a vote never writes a rank. The users.rank column is a daily snapshot,
+ * assigned from the stored scores by the reset's PERSIST_RANKS stage; nothing serves it
+ * while the user is on the board.
+ */
+@Service
+public class LeaderboardService {
+
+    // same order as the tree: score descending, then id
+    // ROW_NUMBER with the id tie-break rather than RANK(), so stored ranks are the same
+    // distinct positions the in-memory tree serves
+    private static final String ASSIGN_RANKS_SQL =
+        "MERGE INTO users u USING (SELECT id, ROW_NUMBER() OVER (ORDER BY total_score DESC, id) AS new_rank FROM users) r "
+            + "ON u.id = r.id WHEN MATCHED AND (u.rank IS NULL OR u.rank <> r.new_rank) THEN UPDATE SET rank = r.new_rank";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final RankTree tree = new RankTree();
+    private final Map<Long, LeaderboardEntry> entries = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public void load() {
+        List<LeaderboardEntry> loaded = userRepository.findLeaderboardEntries();
+        lock.writeLock().lock();
+        try {
+            tree.clear();
+            entries.clear();
+            for (LeaderboardEntry entry : loaded) {
+                entries.put(entry.getUserId(), entry.withRank(0));
+                tree.put(entry.getUserId(), entry.getScore());
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addUser(User user) {
+        lock.writeLock().lock();
+        try {
+            LeaderboardEntry entry = new LeaderboardEntry(user.getId(), user.getUsername(), user.getAvatar(),
+                user.getTotalScore(), 0, user.getPostsCount());
+            entries.put(user.getId(), entry);
+            tree.put(user.getId(), entry.getScore());
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateScore(Long userId, int totalScore) {
+        lock.writeLock().lock();
+        try {
+            LeaderboardEntry entry = entries.get(userId);
+            if (entry == null) {
+                return;
+            }
+            entries.put(userId, entry.withScore(totalScore));
+            tree.put(userId, totalScore);
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void adjustScore(Long userId, int scoreChange) {
+        lock.writeLock().lock();
+        try {
+            LeaderboardEntry entry = entries.get(userId);
+            if (entry != null) {
+                updateScore(userId, entry.getScore() + scoreChange);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void incrementPostsCount(Long userId) {
+        lock.writeLock().lock();
+        try {
+            entries.computeIfPresent(userId, (id, entry) -> entry.withPostsCount(entry.getPostsCount() + 1));
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves on whenever any entry or position may have changed.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public int getRank(Long userId) {
+        lock.readLock().lock();
+        try {
+            return tree.rankOf(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public LeaderboardEntry getEntry(Long userId) {
+        lock.readLock().lock();
+        try {
+            LeaderboardEntry entry = entries.get(userId);
+            return entry == null ? null : entry.withRank(tree.rankOf(userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<LeaderboardEntry> getTopEntries(int limit) {
+        return getEntries(0, limit);
+    }
+
+    public List<LeaderboardEntry> getEntries(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            long[] ids = tree.idsFrom(offset, limit);
+            List<LeaderboardEntry> result = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                result.add(entries.get(ids[i]).withRank(offset + i + 1));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the user's position and up to {@code radius} entries on either side of it,
+     * or null when the user is not ranked.
+     */
+    public List<LeaderboardEntry> getWindow(Long userId, int radius) {
+        lock.readLock().lock();
+        try {
+            int rank = tree.rankOf(userId);
+            if (rank == 0) {
+                return null;
+            }
+            int offset = Math.max(0, rank - 1 - radius);
+            return getEntries(offset, rank - offset + radius);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getUserCount() {
+        return entries.size();
+    }
+
+    /**
+     * Ranks all users by their stored total score in one statement and writes the rows whose
+     * rank moved. Returns how many were written. A full sort of users, so only the daily
+     * reset runs it.
+     */
+    public int assignRanks() {
+        return jdbcTemplate.update(ASSIGN_RANKS_SQL);
+    }
+}
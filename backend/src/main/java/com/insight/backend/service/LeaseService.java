@@ -0,0 +1,183 @@
+package com.insight.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Database leases that let one node of a cluster run a scheduled job. A lease row holds its
+ * owner, an expiry on the database clock and a fencing token that grows with every new
+ * holder. The holder renews the lease on a heartbeat; once it stops, the lease expires and
+ * any node may take it over. Work done under a lease calls {@link #assertHeld} before it
+ * writes, so a stalled former owner stops instead of racing the new one.
+ */
+@Service
+public class LeaseService {
+
+    public static final class Lease {
+        private final String name;
+        private final long token;
+        private volatile boolean lost;
+
+        Lease(String name, long token) {
+            this.name = name;
+            this.token = token;
+        }
+
+        public String getName() { return name; }
+
+        public long getToken() { return token; }
+    }
+
+    private static final String CREATE_SQL =
+        "INSERT INTO scheduler_leases (name, fencing_token) SELECT ?, 0 WHERE NOT EXISTS (SELECT 1 FROM scheduler_leases WHERE name = ?)";
+
+    private static final String FREE_TOKEN_SQL =
+        "SELECT fencing_token FROM scheduler_leases WHERE name = ? AND (owner IS NULL OR expires_at < CURRENT_TIMESTAMP)";
+
+    private static final String TAKE_SQL =
+        "UPDATE scheduler_leases SET owner = ?, fencing_token = ?, expires_at = DATEADD(MILLISECOND, ?, CURRENT_TIMESTAMP), " +
+        "renewed_at = CURRENT_TIMESTAMP WHERE name = ? AND fencing_token = ?";
+
+    private static final String RENEW_SQL =
+        "UPDATE scheduler_leases SET expires_at = DATEADD(MILLISECOND, ?, CURRENT_TIMESTAMP), renewed_at = CURRENT_TIMESTAMP " +
+        "WHERE name = ? AND owner = ? AND fencing_token = ?";
+
+    private static final String RELEASE_SQL =
+        "UPDATE scheduler_leases SET owner = NULL, expires_at = NULL WHERE name = ? AND owner = ? AND fencing_token = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${scheduler.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${scheduler.lease-ttl-ms:60000}")
+    private long leaseTtlMs;
+
+    private String nodeId;
+    private ScheduledExecutorService heartbeats;
+
+    @PostConstruct
+    public void start() {
+        nodeId = configuredNodeId.isEmpty() ? defaultNodeId() : configuredNodeId;
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeats.shutdownNow();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Runs {@code job} if this node can take the lease, renewing it until the job returns.
+     * Returns false without running it when another node holds the lease.
+     */
+    public boolean runExclusive(String name, Consumer<Lease> job) {
+        Lease lease = tryAcquire(name);
+        if (lease == null) {
+            return false;
+        }
+        long interval = Math.max(1, leaseTtlMs / 3);
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleWithFixedDelay(() -> renew(lease), interval, interval, TimeUnit.MILLISECONDS);
+        try {
+            job.accept(lease);
+        } finally {
+            heartbeat.cancel(false);
+            release(lease);
+        }
+        return true;
+    }
+
+    /**
+     * Takes the lease if it is free or expired. The update only matches the token that was
+     * read, so of two nodes racing for it exactly one wins.
+     */
+    public Lease tryAcquire(String name) {
+        try {
+            jdbcTemplate.update(CREATE_SQL, name, name);
+        } catch (DuplicateKeyException e) {
+            // another node created it first
+        }
+        List<Long> free = jdbcTemplate.queryForList(FREE_TOKEN_SQL, Long.class, name);
+        if (free.isEmpty()) {
+            return null;
+        }
+        long token = free.get(0) + 1;
+        if (jdbcTemplate.update(TAKE_SQL, nodeId, token, leaseTtlMs, name, free.get(0)) != 1) {
+            return null;
+        }
+        System.out.println("Lease " + name + " taken by " + nodeId + " with token " + token);
+        return new Lease(name, token);
+    }
+
+    public boolean renew(Lease lease) {
+        if (lease.lost) {
+            return false;
+        }
+        try {
+            if (jdbcTemplate.update(RENEW_SQL, leaseTtlMs, lease.name, nodeId, lease.token) == 1) {
+                return true;
+            }
+            lease.lost = true;
+            System.err.println("Lease " + lease.name + " with token " + lease.token + " was taken over, stopping its work");
+        } catch (DataAccessException e) {
+            // the lease stays valid until it expires, the next heartbeat tries again
+            System.err.println("Failed to renew lease " + lease.name + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    public void release(Lease lease) {
+        try {
+            jdbcTemplate.update(RELEASE_SQL, lease.name, nodeId, lease.token);
+        } catch (DataAccessException e) {
+            System.err.println("Failed to release lease " + lease.name + ", it expires on its own: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Throws if the lease has passed to another holder or has expired.
+     */
+    public void assertHeld(Lease lease) {
+        Integer held = lease.lost ? Integer.valueOf(0) : jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM scheduler_leases WHERE name = ? AND owner = ? AND fencing_token = ? AND expires_at >= CURRENT_TIMESTAMP",
+            Integer.class, lease.name, nodeId, lease.token);
+        if (held == null || held == 0) {
+            lease.lost = true;
+            throw new RuntimeException("Lease " + lease.name + " with token " + lease.token + " is no longer held");
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
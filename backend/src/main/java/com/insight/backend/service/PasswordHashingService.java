@@ -0,0 +1,144 @@
+package com.insight.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and verification on a pool sized to the CPU count with a bounded
+ * queue, so a burst of logins or sign-ups cannot occupy every request thread. When the queue
+ * is full the work is refused with a RejectedExecutionException, which callers answer with
+ * 503 and the Retry-After from {@link #retryAfterSeconds}.
+ */
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${auth.hashing.threads:0}")
+    private int threads;
+
+    @Value("${auth.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private String dummyHash;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    // moving average of one hash, for the Retry-After estimate
+    private volatile long recentHashNanos;
+
+    @PostConstruct
+    public void start() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        dummyHash = passwordEncoder.encode("not-a-real-password");
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks the password against the stored hash. A missing hash is checked against a dummy
+     * one and never matches, so unknown accounts take as long as known ones.
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(() -> {
+            boolean matched = passwordEncoder.matches(rawPassword, encodedPassword != null ? encodedPassword : dummyHash);
+            return matched && encodedPassword != null;
+        });
+    }
+
+    /**
+     * True if the hash was made with weaker settings than the encoder now uses.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Roughly how long until a full queue has drained, at least one second.
+     */
+    public int retryAfterSeconds() {
+        long drainNanos = recentHashNanos * (queueCapacity + executor.getMaximumPoolSize()) / executor.getMaximumPoolSize();
+        return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(drainNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    @Scheduled(fixedDelayString = "${auth.hashing.report-interval-ms:60000}")
+    public void report() {
+        long done = completed.getAndSet(0);
+        long refused = rejected.getAndSet(0);
+        long waited = waitNanos.getAndSet(0);
+        long hashed = hashNanos.getAndSet(0);
+        long maxLatency = maxLatencyNanos.getAndSet(0);
+        if (done == 0 && refused == 0) {
+            return;
+        }
+        System.out.println("Password hashing: " + done + " done, " + refused + " rejected, queue "
+            + executor.getQueue().size() + "/" + queueCapacity + ", avg wait " + millis(waited, done)
+            + " ms, avg hash " + millis(hashed, done) + " ms, max latency " + TimeUnit.NANOSECONDS.toMillis(maxLatency) + " ms");
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        long queuedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                long started = System.nanoTime();
+                try {
+                    result.complete(work.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    record(started - queuedAt, System.nanoTime() - started);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+        return result;
+    }
+
+    private void record(long waited, long hashed) {
+        completed.incrementAndGet();
+        waitNanos.addAndGet(waited);
+        hashNanos.addAndGet(hashed);
+        maxLatencyNanos.accumulateAndGet(waited + hashed, Math::max);
+        recentHashNanos = recentHashNanos == 0 ? hashed : (recentHashNanos * 7 + hashed) / 8;
+    }
+
+    private static long millis(long nanos, long count) {
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(nanos / count);
+    }
+}
@@ -0,0 +1,189 @@
+package com.insight.backend.service;
+
+import com.insight.backend.index.DeltaAccumulator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Denormalized comment, up-vote and down-vote counts on posts. Writes only add to per-post
+ * in-memory cells; the coalesced deltas of all three counters go out as one
+ * {@code count = count + ?} batch on a fixed delay and on shutdown. A reconciliation pass
+ * recounts the source tables with set-based aggregates, reports drift and repairs it.
+ */
+@Service
+public class PostCounterService {
+
+    private static final String UPDATE_SQL =
+        "UPDATE posts SET comment_count = COALESCE(comment_count, 0) + ?, up_count = COALESCE(up_count, 0) + ?, " +
+        "down_count = COALESCE(down_count, 0) + ? WHERE id = ?";
+
+    private static final String DRIFT_SQL =
+        "SELECT p.id, COALESCE(p.comment_count, 0) AS stored_comments, COALESCE(p.up_count, 0) AS stored_up, " +
+        "COALESCE(p.down_count, 0) AS stored_down, COALESCE(c.total, 0) AS comments, COALESCE(v.up, 0) AS up, COALESCE(v.down, 0) AS down " +
+        "FROM posts p " +
+        "LEFT JOIN (SELECT post_id, COUNT(*) AS total FROM comments GROUP BY post_id) c ON c.post_id = p.id " +
+        "LEFT JOIN (SELECT post_id, SUM(CASE WHEN type = 'UP' THEN 1 ELSE 0 END) AS up, " +
+        "SUM(CASE WHEN type = 'DOWN' THEN 1 ELSE 0 END) AS down FROM votes GROUP BY post_id) v ON v.post_id = p.id " +
+        "WHERE COALESCE(p.comment_count, 0) <> COALESCE(c.total, 0) OR COALESCE(p.up_count, 0) <> COALESCE(v.up, 0) " +
+        "OR COALESCE(p.down_count, 0) <> COALESCE(v.down, 0)";
+
+    private static final String RECONCILE_LEASE = "post-counter-reconcile";
+
+    private static final String REPAIR_SQL = "UPDATE posts SET comment_count = ?, up_count = ?, down_count = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TopPostsService topPostsService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private LeaseService leaseService;
+
+    @Value("${posts.counters.batch-size:500}")
+    private int batchSize;
+
+    private final DeltaAccumulator comments = new DeltaAccumulator();
+    private final DeltaAccumulator upVotes = new DeltaAccumulator();
+    private final DeltaAccumulator downVotes = new DeltaAccumulator();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public void onCommentCreated(Long postId) {
+        comments.add(postId, 1);
+    }
+
+    public void onVote(Long postId, int upChange, int downChange) {
+        upVotes.add(postId, upChange);
+        downVotes.add(postId, downChange);
+    }
+
+    @Scheduled(fixedDelayString = "${posts.counters.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Every node pushes its own pending deltas, then one node holding the lease recounts.
+     */
+    @Scheduled(cron = "${posts.counters.reconcile-cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        flush();
+        if (!leaseService.runExclusive(RECONCILE_LEASE, lease -> reconcile())) {
+            System.out.println("Post counter reconciliation runs on another node");
+        }
+    }
+
+    /**
+     * Recounts every post's comments and votes, logs how far the stored counters drifted and
+     * overwrites the drifted rows. Writes that land while the pass runs can leave a small
+     * drift behind, which the next pass reports and repairs.
+     */
+    public int reconcile() {
+        flushLock.lock();
+        try {
+            flushAll();
+            List<long[]> drifted = new ArrayList<>();
+            long[] drift = new long[3];
+            jdbcTemplate.query(DRIFT_SQL,
+                rs -> {
+                    long[] row = {rs.getLong("id"), rs.getLong("comments"), rs.getLong("up"), rs.getLong("down")};
+                    drift[0] += Math.abs(row[1] - rs.getLong("stored_comments"));
+                    drift[1] += Math.abs(row[2] - rs.getLong("stored_up"));
+                    drift[2] += Math.abs(row[3] - rs.getLong("stored_down"));
+                    drifted.add(row);
+                });
+            if (drifted.isEmpty()) {
+                System.out.println("Post counters reconciled: no drift");
+                return 0;
+            }
+            jdbcTemplate.batchUpdate(REPAIR_SQL, drifted, batchSize,
+                (ps, row) -> {
+                    ps.setLong(1, row[1]);
+                    ps.setLong(2, row[2]);
+                    ps.setLong(3, row[3]);
+                    ps.setLong(4, row[0]);
+                });
+            System.out.println("Post counters reconciled: " + drifted.size() + " posts drifted by " + drift[0]
+                + " comments, " + drift[1] + " up votes and " + drift[2] + " down votes");
+            countersMoved(idsOf(drifted));
+            return drifted.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushAll() {
+        Map<Long, Long> drainedComments = comments.drain();
+        Map<Long, Long> drainedUp = upVotes.drain();
+        Map<Long, Long> drainedDown = downVotes.drain();
+        Map<Long, long[]> deltas = new HashMap<>();
+        for (Map.Entry<Long, Long> entry : drainedComments.entrySet()) {
+            deltas.computeIfAbsent(entry.getKey(), id -> new long[3])[0] = entry.getValue();
+        }
+        for (Map.Entry<Long, Long> entry : drainedUp.entrySet()) {
+            deltas.computeIfAbsent(entry.getKey(), id -> new long[3])[1] = entry.getValue();
+        }
+        for (Map.Entry<Long, Long> entry : drainedDown.entrySet()) {
+            deltas.computeIfAbsent(entry.getKey(), id -> new long[3])[2] = entry.getValue();
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, new ArrayList<>(deltas.entrySet()), batchSize,
+                (ps, delta) -> {
+                    ps.setLong(1, delta.getValue()[0]);
+                    ps.setLong(2, delta.getValue()[1]);
+                    ps.setLong(3, delta.getValue()[2]);
+                    ps.setLong(4, delta.getKey());
+                });
+        } catch (RuntimeException e) {
+            comments.restore(drainedComments);
+            upVotes.restore(drainedUp);
+            downVotes.restore(drainedDown);
+            throw e;
+        }
+        comments.complete(drainedComments);
+        upVotes.complete(drainedUp);
+        downVotes.complete(drainedDown);
+        countersMoved(deltas.keySet());
+    }
+
+    private void countersMoved(Set<Long> postIds) {
+        topPostsService.onCountersFlushed(postIds);
+        resourceVersions.bumpPosts();
+    }
+
+    private static Set<Long> idsOf(List<long[]> rows) {
+        Set<Long> ids = new HashSet<>();
+        for (long[] row : rows) {
+            ids.add(row[0]);
+        }
+        return ids;
+    }
+}
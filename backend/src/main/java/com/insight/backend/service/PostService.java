@@ -1,23 +1,29 @@
 package com.insight.backend.service;
 
+import com.insight.backend.dto.PostSummary;
+import com.insight.backend.dto.VoteResult;
 import com.insight.backend.model.Post;
 import com.insight.backend.model.User;
-import com.insight.backend.model.Vote;
 import com.insight.backend.model.VoteType;
 import com.insight.backend.repository.PostRepository;
-import com.insight.backend.repository.VoteRepository;
 import com.insight.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class PostService {
     
+    private static final int MAX_VOTE_ATTEMPTS = 5;
+    
+    private static final String RESET_SCORES_SQL = "UPDATE posts SET score = 0 WHERE id >= ? AND id < ? AND score <> 0";
+    
     @Autowired
     private PostRepository postRepository;
     
@@ -25,14 +31,44 @@ public class PostService {
     private UserRepository userRepository;
     
     @Autowired
-    private VoteRepository voteRepository;
+    private VoteService voteService;
+    
+    @Autowired
+    private PostCounterService postCounterService;
     
     @Autowired
     private UserService userService;
     
-    public Post createPost(String title, String content, Long authorId, List<String> tags) {
-        User author = userRepository.findById(authorId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+    @Autowired
+    private VoteScoreAggregator voteScoreAggregator;
+    
+    @Autowired
+    private TopPostsService topPostsService;
+    
+    @Autowired
+    private HotRankingService hotRankingService;
+    
+    @Autowired
+    private TagIndexService tagIndexService;
+    
+    @Autowired
+    private SearchService searchService;
+    
+    @Autowired
+    private AutocompleteService autocompleteService;
+    
+    @Autowired
+    private ResourceVersions resourceVersions;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Saves the post and returns its summary. The author id and username come from a verified
+     * token, so the author is referenced rather than loaded.
+     */
+    public PostSummary createPost(String title, String content, Long authorId, String authorUsername, List<String> tags) {
+        User author = userRepository.getReferenceById(authorId);
         
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
@@ -46,69 +82,84 @@ public class PostService {
         Post post = new Post(title, content, author);
         post.setTags(tags);
         post = postRepository.save(post);
+        PostSummary summary = new PostSummary(post.getId(), post.getTitle(), post.getScore(), post.getCreatedAt(),
+            authorId, authorUsername, post.getCommentCount(), post.getUpCount(), post.getDownCount());
         
         userService.incrementPostCount(authorId);
+        topPostsService.onPostCreated(summary);
+        hotRankingService.onPostCreated(post);
+        tagIndexService.onPostCreated(post);
+        searchService.indexPost(post);
+        autocompleteService.onPostCreated(post);
+        resourceVersions.bumpPosts();
         
-        return post;
-    }
-    
-    public List<Post> getAllPosts() {
-        return postRepository.findAllOrderByScoreDesc();
+        return summary;
     }
     
-    public List<Post> getTopPosts(int limit) {
-        return postRepository.findAllOrderByScoreDesc().stream()
-            .limit(limit)
-            .collect(Collectors.toList());
+    public List<PostSummary> getTopPosts(int limit) {
+        return topPostsService.getTopPosts(limit);
     }
     
     public Optional<Post> getPostById(Long id) {
         return postRepository.findById(id);
     }
     
-    public Post voteOnPost(Long postId, Long userId, VoteType voteType) {
-        Post post = postRepository.findById(postId)
-            .orElseThrow(() -> new RuntimeException("Post not found"));
-        
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        Optional<Vote> existingVote = voteRepository.findByUserAndPost(user, post);
-        
-        if (existingVote.isPresent()) {
-            Vote vote = existingVote.get();
-            if (vote.getType() == voteType) {
-                voteRepository.delete(vote);
-                post.setScore(post.getScore() + (voteType == VoteType.UP ? -1 : 1));
-            } else {
-                vote.setType(voteType);
-                voteRepository.save(vote);
-                post.setScore(post.getScore() + (voteType == VoteType.UP ? 2 : -2));
+    public VoteResult voteOnPost(Long postId, Long userId, VoteType voteType) {
+        long scoreStamp = voteScoreAggregator.postScoreStamp();
+        VoteResult result = null;
+        for (int attempt = 1; result == null; attempt++) {
+            try {
+                result = voteService.applyVote(postId, userId, voteType);
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                // a concurrent vote by the same user won the race, re-read and apply on top of it.
+                // This retry is what makes a duplicate first vote safe: its insert fails on the key
+                if (attempt >= MAX_VOTE_ATTEMPTS) {
+                    throw new RuntimeException("Could not record vote, please retry");
+                }
             }
-        } else {
-            Vote newVote = new Vote(user, post, voteType);
-            voteRepository.save(newVote);
-            post.setScore(post.getScore() + (voteType == VoteType.UP ? 1 : -1));
         }
         
-        post = postRepository.save(post);
-        
-        int scoreChange = voteType == VoteType.UP ? 1 : -1;
-        userService.updateUserScore(post.getAuthor().getId(), scoreChange);
-        userService.updateUserRanks();
+        userService.updateUserScore(result.getAuthorId(), result.getScoreChange());
+        if (voteScoreAggregator.isEnabled()) {
+            voteScoreAggregator.addPostDelta(postId, result.getScoreChange());
+            // the stored score the vote read does not include buffered deltas, this vote's among them
+            int stored = result.getScore() - result.getScoreChange();
+            result = result.withScore(voteScoreAggregator.postScore(postId, stored, scoreStamp));
+        }
         
-        return post;
+        postCounterService.onVote(postId, result.getUpChange(), result.getDownChange());
+        topPostsService.onScoreChanged(postId, result.getScore());
+        hotRankingService.onVote(postId, result.getScore(), result.getScoreChange());
+        resourceVersions.bumpPosts();
+        return result;
     }
     
     public List<Post> getPostsByUser(Long userId) {
         return postRepository.findByAuthorIdOrderByCreatedAtDesc(userId);
     }
     
-    public void resetAllPosts() {
-        List<Post> allPosts = postRepository.findAll();
-        for (Post post : allPosts) {
-            post.setScore(0);
-            postRepository.save(post);
-        }
+    /**
+     * Returns {min, max} of the post ids, or {0, -1} when there are no posts.
+     */
+    public long[] getIdBounds() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MIN(id), 0), COALESCE(MAX(id), -1) FROM posts",
+            (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2)});
+    }
+    
+    /**
+     * Zeroes the scores of the posts with ids in [from, to) in one statement. Only rows that
+     * still have a score are rewritten, so repeating it is harmless.
+     */
+    public int resetScoresInRange(long from, long to) {
+        return jdbcTemplate.update(RESET_SCORES_SQL, from, to);
+    }
+    
+    /**
+     * Brings the in-memory rankings in line once every range has been reset.
+     */
+    public void onScoresReset() {
+        topPostsService.invalidate();
+        hotRankingService.onScoresReset();
+        resourceVersions.bumpPosts();
     }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.RankHistoryPoint;
+import com.insight.backend.index.RankSeries;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily rank history of every user, stored as delta-encoded {@link RankSeries} chunks in
+ * rank_history_chunks. A snapshot appends a few bytes to each user's open chunk and opens a
+ * new one only when it reaches {@link #CHUNK_BYTES}; the chunk row carries the last point,
+ * so appending never reads the encoded data. Every chunk starts from an absolute point, so a
+ * profile read decodes only the chunks that overlap the requested dates.
+ */
+@Service
+public class RankHistoryService {
+
+    static final int CHUNK_BYTES = 256;
+
+    private static final String OPEN_CHUNKS_SQL =
+        "SELECT c.id, c.user_id, c.last_day, c.last_rank, c.last_score, OCTET_LENGTH(c.data) FROM rank_history_chunks c "
+            + "WHERE c.first_day = (SELECT MAX(first_day) FROM rank_history_chunks WHERE user_id = c.user_id)";
+    private static final String APPEND_SQL =
+        "UPDATE rank_history_chunks SET data = data || CAST(? AS VARBINARY), points = points + 1, last_day = ?, last_rank = ?, last_score = ? "
+            + "WHERE id = ? AND last_day < ?";
+    private static final String OPEN_SQL =
+        "MERGE INTO rank_history_chunks (user_id, first_day, last_day, last_rank, last_score, points, data) "
+            + "KEY (user_id, first_day) VALUES (?, ?, ?, ?, ?, 1, ?)";
+    // same order as the leaderboard: score descending, then id
+    private static final String STANDINGS_SQL =
+        "SELECT id, total_score, ROW_NUMBER() OVER (ORDER BY total_score DESC, id) FROM users";
+    private static final String RANGE_SQL =
+        "SELECT data FROM rank_history_chunks WHERE user_id = ? AND last_day >= ? AND first_day <= ? ORDER BY first_day";
+
+    private static final class OpenChunk {
+        final long id;
+        final long lastDay;
+        final long lastRank;
+        final long lastScore;
+        final int length;
+
+        OpenChunk(long id, long lastDay, long lastRank, long lastScore, int length) {
+            this.id = id;
+            this.lastDay = lastDay;
+            this.lastRank = lastRank;
+            this.lastScore = lastScore;
+            this.length = length;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${rank-history.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Records every user's rank and total score for {@code day}, ranked from the stored
+     * scores rather than this node's leaderboard, which misses other nodes' votes. Users that
+     * already have a point for that day are left alone, so a repeated reset is harmless.
+     */
+    public void recordSnapshot(LocalDate day) {
+        long epochDay = day.toEpochDay();
+        Map<Long, OpenChunk> open = new HashMap<>();
+        jdbcTemplate.query(OPEN_CHUNKS_SQL,
+            rs -> {
+                open.put(rs.getLong(2), new OpenChunk(rs.getLong(1), rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getInt(6)));
+            });
+
+        List<Object[]> appends = new ArrayList<>();
+        List<Object[]> opens = new ArrayList<>();
+        jdbcTemplate.query(STANDINGS_SQL,
+            rs -> {
+                long userId = rs.getLong(1);
+                long score = rs.getLong(2);
+                long rank = rs.getLong(3);
+                OpenChunk chunk = open.get(userId);
+                if (chunk != null && chunk.lastDay >= epochDay) {
+                    return;
+                }
+                if (chunk != null && chunk.length < CHUNK_BYTES) {
+                    byte[] step = RankSeries.encodeStep(epochDay - chunk.lastDay, rank - chunk.lastRank, score - chunk.lastScore);
+                    appends.add(new Object[] {step, epochDay, rank, score, chunk.id});
+                } else {
+                    RankSeries first = new RankSeries();
+                    first.append(epochDay, rank, score);
+                    opens.add(new Object[] {userId, epochDay, rank, score, first.toBytes()});
+                }
+            });
+
+        // the last-day guard and the merge key make a rerun after a partial failure a no-op
+        jdbcTemplate.batchUpdate(APPEND_SQL, appends, batchSize,
+            (ps, row) -> {
+                ps.setBytes(1, (byte[]) row[0]);
+                ps.setLong(2, (Long) row[1]);
+                ps.setLong(3, (Long) row[2]);
+                ps.setLong(4, (Long) row[3]);
+                ps.setLong(5, (Long) row[4]);
+                ps.setLong(6, (Long) row[1]);
+            });
+        jdbcTemplate.batchUpdate(OPEN_SQL, opens, batchSize,
+            (ps, row) -> {
+                ps.setLong(1, (Long) row[0]);
+                ps.setLong(2, (Long) row[1]);
+                ps.setLong(3, (Long) row[1]);
+                ps.setLong(4, (Long) row[2]);
+                ps.setLong(5, (Long) row[3]);
+                ps.setBytes(6, (byte[]) row[4]);
+            });
+    }
+
+    public List<RankHistoryPoint> getHistory(Long userId, LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        List<RankHistoryPoint> history = new ArrayList<>();
+        jdbcTemplate.query(RANGE_SQL,
+            rs -> {
+                long[][] points = RankSeries.decode(rs.getBytes(1)).range(fromDay, toDay);
+                for (int i = 0; i < points[0].length; i++) {
+                    history.add(new RankHistoryPoint(LocalDate.ofEpochDay(points[0][i]), (int) points[1][i], (int) points[2][i]));
+                }
+            }, userId, fromDay, toDay);
+        return history;
+    }
+
+    /**
+     * Returns {user-days, encoded bytes} over all users.
+     */
+    public long[] getFootprint() {
+        return jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(points), 0), COALESCE(SUM(OCTET_LENGTH(data)), 0) FROM rank_history_chunks",
+            (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2)});
+    }
+}
@@ -0,0 +1,66 @@
+package com.insight.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version counters for the polled read endpoints, bumped by every write that
+ * can change what they return. The strong ETags built from them carry a per-process
+ * epoch, so a tag issued before a restart never matches afterwards. The leaderboard tag
+ * uses {@link LeaderboardService#getVersion()} rather than a counter of its own.
+ */
+@Service
+public class ResourceVersions {
+    
+    @Autowired
+    private LeaderboardService leaderboardService;
+    
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong posts = new AtomicLong();
+    private final AtomicLong hot = new AtomicLong();
+    private final Map<Long, AtomicLong> comments = new ConcurrentHashMap<>();
+    
+    public void bumpPosts() {
+        posts.incrementAndGet();
+    }
+    
+    /**
+     * Only the hot order moved, as a re-decay does; the other post feeds are unchanged.
+     */
+    public void bumpHot() {
+        hot.incrementAndGet();
+    }
+    
+    public void bumpComments(Long postId) {
+        comments.computeIfAbsent(postId, id -> new AtomicLong()).incrementAndGet();
+    }
+    
+    public long commentsVersion(Long postId) {
+        AtomicLong version = comments.get(postId);
+        return version == null ? 0 : version.get();
+    }
+    
+    public String postsTag() {
+        return tag("p", posts.get());
+    }
+    
+    public String hotTag() {
+        return tag("h" + posts.get(), hot.get());
+    }
+    
+    public String leaderboardTag() {
+        return tag("l", leaderboardService.getVersion());
+    }
+    
+    public String commentsTag(Long postId) {
+        return tag("c" + postId, commentsVersion(postId));
+    }
+    
+    private String tag(String resource, long version) {
+        return "\"" + epoch + "-" + resource + "-" + version + "\"";
+    }
+}
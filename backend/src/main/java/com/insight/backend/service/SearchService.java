@@ -0,0 +1,108 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.PostSummary;
+import com.insight.backend.dto.PostText;
+import com.insight.backend.dto.SearchPage;
+import com.insight.backend.index.FullTextIndex;
+import com.insight.backend.model.Post;
+import com.insight.backend.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Full-text search over post titles and content. The index is rebuilt at startup by reading
+ * posts in id order one chunk at a time, then kept current from post writes.
+ */
+@Service
+public class SearchService {
+
+    private static final int MAX_PAGE_SIZE = 50;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Value("${search.segment-size:256}")
+    private int segmentSize;
+
+    @Value("${search.merge-factor:8}")
+    private int mergeFactor;
+
+    @Value("${search.rebuild-chunk-size:500}")
+    private int rebuildChunkSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FullTextIndex index;
+
+    @PostConstruct
+    public void rebuild() {
+        FullTextIndex rebuilt = new FullTextIndex(segmentSize, mergeFactor);
+        long lastId = 0;
+        List<PostText> chunk;
+        do {
+            chunk = postRepository.findTextsAfter(lastId, PageRequest.of(0, rebuildChunkSize));
+            for (PostText text : chunk) {
+                rebuilt.add(text.getId(), text.getTitle(), text.getContent());
+                lastId = text.getId();
+            }
+        } while (chunk.size() == rebuildChunkSize);
+        rebuilt.flush();
+
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Search index rebuilt: " + rebuilt.size() + " posts in " + rebuilt.segmentCount() + " segments");
+    }
+
+    public void indexPost(Post post) {
+        lock.writeLock().lock();
+        try {
+            index.add(post.getId(), post.getTitle(), post.getContent());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public SearchPage search(String query, int offset, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int start = Math.max(0, offset);
+        FullTextIndex.Hits hits;
+        lock.readLock().lock();
+        try {
+            hits = index.search(query, start, pageSize);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> ids = new ArrayList<>(hits.getIds().length);
+        for (long id : hits.getIds()) {
+            ids.add(id);
+        }
+        Map<Long, PostSummary> found = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (PostSummary summary : postRepository.findSummariesByIdIn(ids)) {
+                found.put(summary.getId(), summary);
+            }
+        }
+        List<PostSummary> posts = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            PostSummary summary = found.get(id);
+            if (summary != null) {
+                posts.add(summary);
+            }
+        }
+        Integer nextOffset = start + pageSize < hits.getTotal() ? start + pageSize : null;
+        return new SearchPage(posts, hits.getTotal(), nextOffset);
+    }
+}
@@ -0,0 +1,99 @@
+package com.insight.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.insight.backend.dto.JsonSnapshot;
+import com.insight.backend.dto.LeaderboardEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the default leaderboard and top posts responses rendered as UTF-8 JSON. A render
+ * happens at most once per refresh interval and only when the source version moved, and
+ * the new snapshot replaces the old one through a volatile write, so readers never block
+ * and never serialize anything.
+ */
+@Service
+public class SnapshotPublisher {
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private TopPostsService topPostsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${snapshots.leaderboard-size:10}")
+    private int leaderboardSize;
+
+    @Value("${snapshots.top-posts-size:10}")
+    private int topPostsSize;
+
+    private volatile JsonSnapshot leaderboard;
+    private volatile JsonSnapshot topPosts;
+
+    public int getLeaderboardSize() {
+        return leaderboardSize;
+    }
+
+    public int getTopPostsSize() {
+        return topPostsSize;
+    }
+
+    public JsonSnapshot getLeaderboard() {
+        JsonSnapshot snapshot = leaderboard;
+        return snapshot != null ? snapshot : refreshLeaderboard();
+    }
+
+    public JsonSnapshot getTopPosts() {
+        JsonSnapshot snapshot = topPosts;
+        return snapshot != null ? snapshot : refreshTopPosts();
+    }
+
+    @Scheduled(fixedDelayString = "${snapshots.refresh-interval-ms:250}")
+    public void refresh() {
+        JsonSnapshot current = leaderboard;
+        if (current == null || current.getVersion() != leaderboardService.getVersion()) {
+            refreshLeaderboard();
+        }
+        current = topPosts;
+        if (current == null || current.getVersion() != topPostsService.getVersion()) {
+            refreshTopPosts();
+        }
+    }
+
+    private synchronized JsonSnapshot refreshLeaderboard() {
+        // read the version first so a change that races with the render triggers another one
+        long version = leaderboardService.getVersion();
+        List<LeaderboardEntry> leaderboardEntries = leaderboardService.getTopEntries(leaderboardSize);
+        Map<String, Object> leaderboardResponse = new HashMap<>();
+        leaderboardResponse.put("leaderboard", leaderboardEntries);
+        leaderboardResponse.put("totalUsers", leaderboardEntries.size());
+        leaderboard = render(version, leaderboardResponse);
+        return leaderboard;
+    }
+
+    private synchronized JsonSnapshot refreshTopPosts() {
+        long version = topPostsService.getVersion();
+        topPosts = render(version, topPostsService.getTopPosts(topPostsSize));
+        return topPosts;
+    }
+
+    private JsonSnapshot render(long version, Object value) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(value);
+            return new JsonSnapshot(version, body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not render snapshot", e);
+        }
+    }
+}
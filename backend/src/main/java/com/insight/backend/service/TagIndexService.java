@@ -0,0 +1,166 @@
+package com.insight.backend.service;
+
+import com.insight.backend.index.PostingList;
+import com.insight.backend.model.Post;
+import com.insight.backend.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from tag to the ids of the posts carrying it. Tag filters are answered by
+ * merging sorted posting lists and facet counts by walking the matched posts' tags, so
+ * neither touches the post_tags table after startup.
+ */
+@Service
+public class TagIndexService {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, String[]> tagsByPost = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void load() {
+        Map<Long, Set<String>> loaded = new HashMap<>();
+        for (Object[] row : postRepository.findAllPostTags()) {
+            String tag = row[1] == null ? "" : normalize((String) row[1]);
+            if (!tag.isEmpty()) {
+                loaded.computeIfAbsent((Long) row[0], id -> new LinkedHashSet<>()).add(tag);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            tagsByPost.clear();
+            loaded.keySet().stream().sorted().forEach(postId -> index(postId, loaded.get(postId)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onPostCreated(Post post) {
+        if (post.getTags() == null) {
+            return;
+        }
+        Set<String> tags = new LinkedHashSet<>();
+        for (String tag : post.getTags()) {
+            String normalized = tag == null ? "" : normalize(tag);
+            if (!normalized.isEmpty()) {
+                tags.add(normalized);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            index(post.getId(), tags);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ascending ids of posts carrying all ({@code matchAll}) or any of the tags.
+     */
+    public long[] findPostIds(Collection<String> tags, boolean matchAll) {
+        lock.readLock().lock();
+        try {
+            List<long[]> lists = new ArrayList<>();
+            for (String tag : tags) {
+                PostingList list = postings.get(normalize(tag));
+                if (list != null) {
+                    lists.add(list.toArray());
+                } else if (matchAll) {
+                    return new long[0];
+                }
+            }
+            if (lists.isEmpty()) {
+                return new long[0];
+            }
+            // intersect the shortest lists first so the running result stays small
+            lists.sort((a, b) -> Integer.compare(a.length, b.length));
+            long[] result = lists.get(0);
+            for (int i = 1; i < lists.size(); i++) {
+                result = matchAll ? PostingList.intersect(result, lists.get(i)) : PostingList.union(result, lists.get(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the tags of the given posts, most frequent first, keeping the top {@code limit}.
+     */
+    public Map<String, Integer> countTags(long[] postIds, int limit) {
+        Map<String, Integer> counts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (long postId : postIds) {
+                String[] tags = tagsByPost.get(postId);
+                if (tags != null) {
+                    for (String tag : tags) {
+                        counts.merge(tag, 1, Integer::sum);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<String, Integer> facets = new LinkedHashMap<>();
+        counts.entrySet().stream()
+            .sorted((a, b) -> a.getValue().equals(b.getValue()) ? a.getKey().compareTo(b.getKey()) : b.getValue() - a.getValue())
+            .limit(limit)
+            .forEach(entry -> facets.put(entry.getKey(), entry.getValue()));
+        return facets;
+    }
+
+    public int getFrequency(String tag) {
+        lock.readLock().lock();
+        try {
+            PostingList list = postings.get(normalize(tag));
+            return list == null ? 0 : list.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Integer> getFrequencies() {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                frequencies.put(entry.getKey(), entry.getValue().size());
+            }
+            return frequencies;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static String normalize(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void index(Long postId, Set<String> tags) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        tagsByPost.put(postId, tags.toArray(new String[0]));
+        for (String tag : tags) {
+            postings.computeIfAbsent(tag, t -> new PostingList()).add(postId);
+        }
+    }
+}
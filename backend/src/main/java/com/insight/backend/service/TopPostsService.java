@@ -0,0 +1,159 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.PostSummary;
+import com.insight.backend.index.TopKIndex;
+import com.insight.backend.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves /api/posts/top from a bounded in-memory top-K that follows every score change.
+ * When the index is cold or cannot vouch for enough positions it is reloaded first; a LIMIT
+ * query answers only when the reload was overtaken by an invalidation.
+ */
+@Service
+public class TopPostsService {
+    
+    private static final int MAX_LIMIT = 100;
+    
+    @Autowired
+    private PostRepository postRepository;
+    
+    @Autowired
+    private VoteScoreAggregator voteScoreAggregator;
+    
+    @Value("${posts.top-index.capacity:200}")
+    private int capacity;
+    
+    private TopKIndex index;
+    private final Map<Long, PostSummary> summaries = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final ReentrantLock warmLock = new ReentrantLock();
+    
+    @PostConstruct
+    public void init() {
+        index = new TopKIndex(capacity);
+    }
+    
+    public void onPostCreated(PostSummary summary) {
+        summaries.put(summary.getId(), summary);
+        index.update(summary.getId(), summary.getScore());
+        version.incrementAndGet();
+    }
+    
+    public void onScoreChanged(Long postId, int score) {
+        index.update(postId, score);
+        version.incrementAndGet();
+    }
+    
+    /**
+     * Drops the cached summaries of posts whose stored counters moved.
+     */
+    public void onCountersFlushed(Collection<Long> postIds) {
+        summaries.keySet().removeAll(postIds);
+        version.incrementAndGet();
+    }
+    
+    public void invalidate() {
+        index.clear();
+        summaries.clear();
+        version.incrementAndGet();
+    }
+    
+    /**
+     * Moves on whenever the top posts may have changed.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+    
+    public List<PostSummary> getTopPosts(int limit) {
+        int count = Math.max(1, Math.min(limit, MAX_LIMIT));
+        if (count > index.capacity()) {
+            return findTopPosts(count);
+        }
+        long[][] top = index.top(count);
+        if (top == null) {
+            warm(count);
+            top = index.top(count);
+            if (top == null) {
+                return findTopPosts(count);
+            }
+        }
+        return hydrate(top[0], top[1]);
+    }
+    
+    /**
+     * Reloads the index unless a concurrent warm already made it cover {@code limit}. A load
+     * that an {@link #invalidate} overtook is dropped, since its rows may predate the change
+     * that caused the invalidation.
+     */
+    private void warm(int limit) {
+        warmLock.lock();
+        try {
+            if (index.top(limit) != null) {
+                return;
+            }
+            long ticket = index.beginLoad();
+            // bring the stored scores up to date so the index starts from exact values
+            voteScoreAggregator.flush();
+            List<PostSummary> rows = findTopPosts(index.capacity());
+            long[] ids = new long[rows.size()];
+            long[] scores = new long[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                PostSummary row = rows.get(i);
+                ids[i] = row.getId();
+                scores[i] = row.getScore();
+                summaries.put(row.getId(), row);
+            }
+            if (!index.load(ticket, ids, scores, rows.size() < index.capacity())) {
+                for (long id : ids) {
+                    summaries.remove(id);
+                }
+            }
+        } finally {
+            warmLock.unlock();
+        }
+    }
+    
+    private List<PostSummary> findTopPosts(int limit) {
+        return postRepository.findTopSummaries(PageRequest.of(0, limit));
+    }
+    
+    private List<PostSummary> hydrate(long[] ids, long[] scores) {
+        List<Long> missing = new ArrayList<>();
+        for (long id : ids) {
+            if (!summaries.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (PostSummary summary : postRepository.findSummariesByIdIn(missing)) {
+                summaries.put(summary.getId(), summary);
+            }
+        }
+        if (summaries.size() > 2 * index.capacity()) {
+            summaries.keySet().removeIf(id -> !index.contains(id));
+        }
+        
+        List<PostSummary> result = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            PostSummary summary = summaries.get(ids[i]);
+            if (summary != null) {
+                result.add(summary.withScore((int) scores[i]));
+            }
+        }
+        return result;
+    }
+}
@@ -1,17 +1,17 @@
 package com.insight.backend.service;
 
 import com.insight.backend.model.User;
-import com.insight.backend.model.Achievement;
 import com.insight.backend.repository.UserRepository;
-import com.insight.backend.repository.AchievementRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class UserService {
@@ -20,23 +20,84 @@ public class UserService {
     private UserRepository userRepository;
     
     @Autowired
-    private AchievementRepository achievementRepository;
+    private PasswordHashingService passwordHashingService;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private LeaderboardService leaderboardService;
     
-    public User createUser(String username, String email, String password) {
+    @Autowired
+    private VoteScoreAggregator voteScoreAggregator;
+    
+    @Autowired
+    private AutocompleteService autocompleteService;
+    
+    @Autowired
+    private DailyLeaderboardService dailyLeaderboardService;
+    
+    @Autowired
+    private AchievementService achievementService;
+    
+    // continuations that touch the database leave the hashing pool for the shared task pool
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private Executor taskExecutor;
+    
+    /**
+     * Rejects taken names before spending a hash on them, then hashes the password on the
+     * hashing pool and saves the user.
+     */
+    public CompletableFuture<User> createUser(String username, String email, String password) {
         if (userRepository.existsByUsername(username) || userRepository.existsByEmail(email)) {
             throw new RuntimeException("Username or email already exists");
         }
         
-        User user = new User(username, email, passwordEncoder.encode(password));
+        return passwordHashingService.encode(password)
+            .thenApplyAsync(passwordHash -> saveNewUser(username, email, passwordHash), taskExecutor);
+    }
+    
+    private User saveNewUser(String username, String email, String passwordHash) {
+        User user = new User(username, email, passwordHash);
         user.setJoinedAt(LocalDateTime.now());
         user.setTotalScore(0);
         user.setRank(0);
         user.setPostsCount(0);
         
-        return userRepository.save(user);
+        user = userRepository.save(user);
+        leaderboardService.addUser(user);
+        autocompleteService.onUserCreated(user);
+        achievementService.onUserCreated(user.getId());
+        return user;
+    }
+    
+    /**
+     * Completes with the user if the password is right, or with null otherwise. A hash made
+     * with an older cost is replaced in the background after a successful check.
+     */
+    public CompletableFuture<User> authenticate(String username, String password) {
+        User user = userRepository.findByUsername(username).orElse(null);
+        return passwordHashingService.matches(password, user != null ? user.getPassword() : null)
+            .thenApplyAsync(matched -> {
+                if (!matched) {
+                    return null;
+                }
+                if (passwordHashingService.needsRehash(user.getPassword())) {
+                    rehashPassword(user.getId(), password);
+                }
+                return user;
+            }, taskExecutor);
+    }
+    
+    private void rehashPassword(Long userId, String password) {
+        try {
+            passwordHashingService.encode(password)
+                .thenAcceptAsync(passwordHash -> userRepository.updatePassword(userId, passwordHash), taskExecutor)
+                .exceptionally(e -> {
+                    System.err.println("Failed to rehash the password of user " + userId + ": " + e.getMessage());
+                    return null;
+                });
+        } catch (RejectedExecutionException e) {
+            // the pool is busy, the next login tries again
+        }
     }
     
     public Optional<User> findByUsername(String username) {
@@ -52,101 +113,42 @@ public class UserService {
             .orElseThrow(() -> new RuntimeException("User not found"));
     }
     
-    public User updateUserScore(Long userId, int scoreChange) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        user.setTotalScore(user.getTotalScore() + scoreChange);
-        return userRepository.save(user);
-    }
-    
-    public User incrementPostCount(Long userId) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        user.setPostsCount(user.getPostsCount() + 1);
-        return userRepository.save(user);
-    }
-    
-    public List<User> getTopUsers(int limit) {
-        return userRepository.findAllByOrderByTotalScoreDesc().stream()
-            .limit(limit)
-            .collect(Collectors.toList());
-    }
-    
-    public void updateUserRanks() {
-        List<User> users = userRepository.findAllByOrderByTotalScoreDesc();
-        for (int i = 0; i < users.size(); i++) {
-            User user = users.get(i);
-            user.setRank(i + 1);
-            userRepository.save(user);
-        }
-    }
-    
-    public void checkAndAwardAchievements() {
-        List<User> users = userRepository.findAll();
-        
-        for (User user : users) {
-            // Check for various achievements
-            checkAndAwardFirstPost(user);
-            checkAndAwardScoreMilestones(user);
-            checkAndAwardPostCountMilestones(user);
-            checkAndAwardTopRank(user);
-        }
-    }
-    
-    private void checkAndAwardFirstPost(User user) {
-        if (user.getPostsCount() >= 1 && !hasAchievement(user, "First Post")) {
-            awardAchievement(user, "First Post", "Created your first post", "🎯");
-        }
-    }
-    
-    private void checkAndAwardScoreMilestones(User user) {
-        int score = user.getTotalScore();
-        
-        if (score >= 100 && !hasAchievement(user, "Century Club")) {
-            awardAchievement(user, "Century Club", "Reached 100 total score", "💯");
-        }
-        
-        if (score >= 500 && !hasAchievement(user, "High Scorer")) {
-            awardAchievement(user, "High Scorer", "Reached 500 total score", "🌟");
-        }
-        
-        if (score >= 1000 && !hasAchievement(user, "Score Master")) {
-            awardAchievement(user, "Score Master", "Reached 1000 total score", "👑");
+    public void updateUserScore(Long userId, int scoreChange) {
+        if (voteScoreAggregator.isEnabled()) {
+            voteScoreAggregator.addAuthorDelta(userId, scoreChange);
         }
+        leaderboardService.adjustScore(userId, scoreChange);
+        dailyLeaderboardService.onScoreChanged(userId, scoreChange);
+        autocompleteService.onScoreChanged(userId);
+        achievementService.onScoreChanged(userId);
     }
     
-    private void checkAndAwardPostCountMilestones(User user) {
-        int postCount = user.getPostsCount();
-        
-        if (postCount >= 10 && !hasAchievement(user, "Prolific Poster")) {
-            awardAchievement(user, "Prolific Poster", "Created 10 posts", "📝");
-        }
-        
-        if (postCount >= 50 && !hasAchievement(user, "Post Master")) {
-            awardAchievement(user, "Post Master", "Created 50 posts", "📚");
+    public void incrementPostCount(Long userId) {
+        if (userRepository.incrementPostsCount(userId) == 0) {
+            throw new RuntimeException("User not found");
         }
+        leaderboardService.incrementPostsCount(userId);
+        achievementService.onPostCreated(userId);
     }
     
-    private void checkAndAwardTopRank(User user) {
-        if (user.getRank() <= 3 && !hasAchievement(user, "Top Performer")) {
-            awardAchievement(user, "Top Performer", "Achieved top 3 rank", "🏆");
-        }
-        
-        if (user.getRank() == 1 && !hasAchievement(user, "Rank 1")) {
-            awardAchievement(user, "Rank 1", "Achieved the #1 rank", "👑");
-        }
+    /**
+     * Writes every user's rank from the stored scores; returns how many ranks moved.
+     */
+    public int updateUserRanks() {
+        return leaderboardService.assignRanks();
     }
     
-    private boolean hasAchievement(User user, String achievementName) {
-        return user.getAchievements().stream()
-            .anyMatch(achievement -> achievement.getName().equals(achievementName));
+    /**
+     * Rebuilds this node's leaderboards from the stored scores, picking up what other nodes
+     * wrote. Buffered deltas are flushed first so the reload does not drop them.
+     */
+    public void reloadStandings() {
+        voteScoreAggregator.flush();
+        leaderboardService.load();
+        dailyLeaderboardService.reloadToday();
     }
     
-    private void awardAchievement(User user, String name, String description, String icon) {
-        Achievement achievement = new Achievement(name, description, icon, user);
-        achievementRepository.save(achievement);
-        System.out.println("Achievement awarded to " + user.getUsername() + ": " + name);
+    public void checkAndAwardAchievements() {
+        achievementService.evaluateAll();
     }
 }
\ No newline at end of file
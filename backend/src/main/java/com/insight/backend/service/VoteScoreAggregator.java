@@ -0,0 +1,163 @@
+package com.insight.backend.service;
+
+import com.insight.backend.index.DeltaAccumulator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for vote score deltas. Votes only touch in-memory counters; the
+ * coalesced deltas are applied as {@code score = score + ?} batches on a fixed delay, when
+ * too many keys are pending, and on shutdown.
+ */
+@Service
+public class VoteScoreAggregator {
+
+    private static final String UPDATE_POST_SQL = "UPDATE posts SET score = score + ? WHERE id = ?";
+    private static final String SELECT_POST_SCORE_SQL = "SELECT score FROM posts WHERE id = ?";
+    private static final String UPDATE_USER_SQL = "UPDATE users SET total_score = total_score + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Value("${votes.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${votes.write-behind.max-pending:1000}")
+    private int maxPending;
+
+    @Value("${votes.write-behind.batch-size:500}")
+    private int batchSize;
+
+    private final DeltaAccumulator postDeltas = new DeltaAccumulator();
+    private final DeltaAccumulator authorDeltas = new DeltaAccumulator();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // odd while post deltas are being drained and written, bumped again once they are done
+    private final AtomicLong postFlushStamp = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addPostDelta(Long postId, int delta) {
+        postDeltas.add(postId, delta);
+        flushIfFull();
+    }
+
+    public void addAuthorDelta(Long userId, int delta) {
+        authorDeltas.add(userId, delta);
+        flushIfFull();
+    }
+
+    /**
+     * Stored score plus buffered deltas, read under the flush lock so a delta that is being
+     * written is counted exactly once: either in the stored score or as pending.
+     */
+    public int currentPostScore(Long postId) {
+        flushLock.lock();
+        try {
+            Integer stored = jdbcTemplate.queryForObject(SELECT_POST_SCORE_SQL, Integer.class, postId);
+            return (stored == null ? 0 : stored) + (int) postDeltas.pending(postId);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Taken before a stored post score is read, for {@link #postScore}.
+     */
+    public long postScoreStamp() {
+        return postFlushStamp.get();
+    }
+    
+    /**
+     * A stored score read after {@code stamp} was taken, plus the buffered deltas. If a post
+     * flush overlapped the two reads a delta may be in both or neither, so the score is then
+     * read again with {@link #currentPostScore}.
+     */
+    public int postScore(Long postId, int stored, long stamp) {
+        int pending = (int) postDeltas.pending(postId);
+        if ((stamp & 1) == 0 && postFlushStamp.get() == stamp) {
+            return stored + pending;
+        }
+        return currentPostScore(postId);
+    }
+    
+    public int pendingAuthorDelta(Long userId) {
+        return (int) authorDeltas.pending(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${votes.write-behind.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void flushIfFull() {
+        if (postDeltas.size() + authorDeltas.size() < maxPending || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            flushAll();
+        } catch (RuntimeException e) {
+            // the deltas were put back, the scheduled flush will retry them
+            System.err.println("Error flushing vote scores: " + e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushAll() {
+        boolean postsFlushed;
+        postFlushStamp.incrementAndGet();
+        try {
+            postsFlushed = flush(postDeltas, UPDATE_POST_SQL);
+        } finally {
+            postFlushStamp.incrementAndGet();
+        }
+        if (postsFlushed) {
+            // stored post scores moved, responses read from the posts table are stale
+            resourceVersions.bumpPosts();
+        }
+        flush(authorDeltas, UPDATE_USER_SQL);
+    }
+
+    private boolean flush(DeltaAccumulator accumulator, String sql) {
+        Map<Long, Long> drained = accumulator.drain();
+        if (drained.isEmpty()) {
+            return false;
+        }
+        try {
+            jdbcTemplate.batchUpdate(sql, new ArrayList<>(drained.entrySet()), batchSize,
+                (ps, delta) -> {
+                    ps.setLong(1, delta.getValue());
+                    ps.setLong(2, delta.getKey());
+                });
+            accumulator.complete(drained);
+            return true;
+        } catch (RuntimeException e) {
+            accumulator.restore(drained);
+            throw e;
+        }
+    }
+}
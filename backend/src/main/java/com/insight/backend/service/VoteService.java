@@ -0,0 +1,128 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.CommentVoteResult;
+import com.insight.backend.dto.CommentVoteTarget;
+import com.insight.backend.dto.VoteResult;
+import com.insight.backend.dto.VoteTarget;
+import com.insight.backend.model.VoteType;
+import com.insight.backend.repository.CommentRepository;
+import com.insight.backend.repository.CommentVoteRepository;
+import com.insight.backend.repository.PostRepository;
+import com.insight.backend.repository.UserRepository;
+import com.insight.backend.repository.VoteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class VoteService {
+    
+    @Autowired
+    private PostRepository postRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private VoteRepository voteRepository;
+    
+    @Autowired
+    private VoteScoreAggregator voteScoreAggregator;
+    
+    @Autowired
+    private CommentRepository commentRepository;
+    
+    @Autowired
+    private CommentVoteRepository commentVoteRepository;
+    
+    /**
+     * Toggles the user's vote on a post with one read and one conditional write. Without
+     * write-behind the score deltas are applied here as well, in the same transaction.
+     */
+    @Transactional
+    public VoteResult applyVote(Long postId, Long userId, VoteType voteType) {
+        VoteTarget target = postRepository.findVoteTarget(postId, userId)
+            .orElseThrow(() -> new RuntimeException("Post not found"));
+        
+        VoteType currentVote = target.getCurrentVote();
+        VoteType userVote;
+        int scoreChange;
+        int updated;
+        if (currentVote == null) {
+            // inserts only if still absent. A concurrent first vote that commits while this one
+            // is in flight still ends in a unique-key violation; the caller retries on top of it
+            updated = voteRepository.insertVote(userId, postId, voteType.name());
+            scoreChange = voteType == VoteType.UP ? 1 : -1;
+            userVote = voteType;
+        } else if (currentVote == voteType) {
+            updated = voteRepository.deleteVote(userId, postId, currentVote);
+            scoreChange = voteType == VoteType.UP ? -1 : 1;
+            userVote = null;
+        } else {
+            updated = voteRepository.switchVote(userId, postId, currentVote, voteType);
+            scoreChange = voteType == VoteType.UP ? 2 : -2;
+            userVote = voteType;
+        }
+        
+        if (updated == 0) {
+            throw new ConcurrencyFailureException("Vote changed concurrently");
+        }
+        
+        int score;
+        if (voteScoreAggregator.isEnabled()) {
+            // the caller adds the buffered deltas to the stored score read above
+            score = target.getScore() + scoreChange;
+        } else {
+            postRepository.addToScore(postId, scoreChange);
+            userRepository.addToTotalScore(target.getAuthorId(), scoreChange);
+            // re-read under the row lock taken by the update, other users may have voted since
+            score = postRepository.findScore(postId);
+        }
+        
+        return new VoteResult(postId, target.getAuthorId(), score, scoreChange, userVote,
+            countChange(currentVote, userVote, VoteType.UP), countChange(currentVote, userVote, VoteType.DOWN));
+    }
+    
+    /**
+     * Same toggle as {@link #applyVote} for a comment, which keeps separate up and down
+     * counts next to its score.
+     */
+    @Transactional
+    public CommentVoteResult applyCommentVote(Long commentId, Long userId, VoteType voteType) {
+        CommentVoteTarget target = commentRepository.findVoteTarget(commentId, userId)
+            .orElseThrow(() -> new RuntimeException("Comment not found"));
+        
+        VoteType currentVote = target.getCurrentVote();
+        VoteType userVote;
+        int updated;
+        if (currentVote == null) {
+            // same as for posts, a concurrent first vote may still fail on the unique key
+            updated = commentVoteRepository.insertVote(userId, commentId, voteType.name());
+            userVote = voteType;
+        } else if (currentVote == voteType) {
+            updated = commentVoteRepository.deleteVote(userId, commentId, currentVote);
+            userVote = null;
+        } else {
+            updated = commentVoteRepository.switchVote(userId, commentId, currentVote, voteType);
+            userVote = voteType;
+        }
+        
+        if (updated == 0) {
+            throw new ConcurrencyFailureException("Vote changed concurrently");
+        }
+        
+        // re-read under the row lock taken by the update, other users may have voted since
+        commentRepository.addVotes(commentId, countChange(currentVote, userVote, VoteType.UP), countChange(currentVote, userVote, VoteType.DOWN));
+        Object[] counts = commentRepository.findVoteCounts(commentId).get(0);
+        return new CommentVoteResult(commentId, target.getPostId(), (Integer) counts[0], (Integer) counts[1], userVote);
+    }
+    
+    /**
+     * How the number of {@code side} votes moves when a vote goes from {@code before} to
+     * {@code after}, either of which may be null.
+     */
+    private static int countChange(VoteType before, VoteType after, VoteType side) {
+        return (after == side ? 1 : 0) - (before == side ? 1 : 0);
+    }
+}
@@ -0,0 +1,107 @@
+package com.insight.backend.controller;
+
+import com.insight.backend.model.User;
+import com.insight.backend.model.VoteType;
+import com.insight.backend.service.CommentService;
+import com.insight.backend.service.PostService;
+import com.insight.backend.service.ResourceVersions;
+import com.insight.backend.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:conditional-get-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-"
+})
+@AutoConfigureMockMvc
+class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    private User newUser(String name) {
+        return userService.createUser(name, name + "@example.com", "password").join();
+    }
+
+    private Long newPost(User author) {
+        return postService.createPost("title", "content", author.getId(), author.getUsername(), Collections.<String>emptyList()).getId();
+    }
+
+    private String etagOf(String url) throws Exception {
+        String etag = mockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    @Test
+    void topPostsAnswerNotModifiedUntilAPostChanges() throws Exception {
+        User author = newUser("etag-author");
+        newPost(author);
+        String etag = etagOf("/api/posts/top?limit=5");
+
+        mockMvc.perform(get("/api/posts/top?limit=5").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        postService.voteOnPost(newPost(newUser("etag-second-author")), author.getId(), VoteType.UP);
+
+        mockMvc.perform(get("/api/posts/top?limit=5").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk());
+        assertNotEquals(etag, etagOf("/api/posts/top?limit=5"));
+    }
+
+    @Test
+    void theLeaderboardTagFollowsScoreChanges() throws Exception {
+        User author = newUser("board-author");
+        Long postId = newPost(author);
+        String etag = etagOf("/api/users/leaderboard?limit=5");
+
+        mockMvc.perform(get("/api/users/leaderboard?limit=5").header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag))
+            .andExpect(status().isNotModified());
+
+        postService.voteOnPost(postId, newUser("board-voter").getId(), VoteType.UP);
+
+        assertNotEquals(etag, etagOf("/api/users/leaderboard?limit=5"));
+    }
+
+    @Test
+    void aCommentOnlyMovesItsOwnPostsTag() {
+        User author = newUser("comment-author");
+        Long postId = newPost(author);
+        Long otherPostId = newPost(newUser("comment-other-author"));
+        String tag = resourceVersions.commentsTag(postId);
+        String otherTag = resourceVersions.commentsTag(otherPostId);
+
+        commentService.createComment("first", postId, author.getId(), author.getUsername(), null);
+
+        assertNotEquals(tag, resourceVersions.commentsTag(postId));
+        assertEquals(otherTag, resourceVersions.commentsTag(otherPostId));
+    }
+}
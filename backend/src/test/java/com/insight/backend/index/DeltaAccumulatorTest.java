@@ -0,0 +1,94 @@
+package com.insight.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeltaAccumulatorTest {
+
+    @Test
+    void drainedDeltasStayPendingUntilCompleted() {
+        DeltaAccumulator accumulator = new DeltaAccumulator();
+        accumulator.add(1, 5);
+        accumulator.add(1, -2);
+        accumulator.add(2, 4);
+
+        Map<Long, Long> drained = accumulator.drain();
+        assertEquals(3L, drained.get(1L));
+        assertEquals(4L, drained.get(2L));
+        assertEquals(3, accumulator.pending(1));
+
+        accumulator.add(1, 1);
+        assertEquals(4, accumulator.pending(1));
+
+        accumulator.complete(drained);
+        assertEquals(1, accumulator.pending(1));
+        assertEquals(0, accumulator.pending(2));
+        assertEquals(1L, accumulator.drain().get(1L));
+    }
+
+    @Test
+    void restorePutsDrainedDeltasBack() {
+        DeltaAccumulator accumulator = new DeltaAccumulator();
+        accumulator.add(1, 5);
+        accumulator.add(2, -3);
+
+        Map<Long, Long> drained = accumulator.drain();
+        accumulator.add(1, 2);
+        accumulator.restore(drained);
+
+        assertEquals(7, accumulator.pending(1));
+        assertEquals(-3, accumulator.pending(2));
+        Map<Long, Long> retried = accumulator.drain();
+        assertEquals(7L, retried.get(1L));
+        assertEquals(-3L, retried.get(2L));
+    }
+
+    @Test
+    void drainRetiresIdleCells() {
+        DeltaAccumulator accumulator = new DeltaAccumulator();
+        accumulator.add(1, 2);
+        accumulator.add(1, -2);
+
+        assertTrue(accumulator.drain().isEmpty());
+        assertEquals(0, accumulator.size());
+        assertEquals(0, accumulator.pending(1));
+    }
+
+    @Test
+    void concurrentAddsAreNeverLost() throws InterruptedException {
+        DeltaAccumulator accumulator = new DeltaAccumulator();
+        int writers = 4;
+        int addsPerWriter = 20000;
+        int keys = 10;
+        CountDownLatch done = new CountDownLatch(writers);
+        for (int w = 0; w < writers; w++) {
+            new Thread(() -> {
+                for (int i = 0; i < addsPerWriter; i++) {
+                    accumulator.add(i % keys, 1);
+                }
+                done.countDown();
+            }).start();
+        }
+
+        Map<Long, Long> totals = new HashMap<>();
+        boolean writing = true;
+        while (writing) {
+            // one more drain after the writers finish picks up their last adds
+            writing = done.getCount() > 0;
+            Map<Long, Long> drained = accumulator.drain();
+            drained.forEach((key, value) -> totals.merge(key, value, Long::sum));
+            accumulator.complete(drained);
+        }
+
+        for (long key = 0; key < keys; key++) {
+            assertEquals((long) writers * addsPerWriter / keys, totals.get(key));
+            assertEquals(0, accumulator.pending(key));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.insight.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FullTextIndexTest {
+
+    @Test
+    void ranksHigherTermFrequencyFirst() {
+        FullTextIndex index = new FullTextIndex(256, 8);
+        index.add(1, "java streams", "streams in java are lazy, java is fine");
+        index.add(2, "cooking", "java coffee beans");
+        index.add(3, "python", "nothing relevant here");
+
+        FullTextIndex.Hits hits = index.search("java", 0, 10);
+
+        assertArrayEquals(new long[] {1, 2}, hits.getIds());
+        assertEquals(2, hits.getTotal());
+        assertTrue(hits.getScores()[0] > hits.getScores()[1]);
+    }
+
+    @Test
+    void rareTermsWeighMoreThanCommonOnes() {
+        FullTextIndex index = new FullTextIndex(256, 8);
+        index.add(1, "", "alpha beta");
+        index.add(2, "", "alpha alpha");
+        index.add(3, "", "alpha gamma");
+        index.add(4, "", "alpha delta");
+
+        assertEquals(1, index.search("alpha beta", 0, 10).getIds()[0]);
+    }
+
+    @Test
+    void shorterDocumentsRankFirstAtEqualFrequency() {
+        FullTextIndex index = new FullTextIndex(256, 8);
+        index.add(1, "", "kotlin plus many other words about nothing much");
+        index.add(2, "", "kotlin");
+
+        assertArrayEquals(new long[] {2, 1}, index.search("kotlin", 0, 10).getIds());
+    }
+
+    @Test
+    void titleMatchesOutrankContentMatches() {
+        FullTextIndex index = new FullTextIndex(256, 8);
+        index.add(1, "notes", "scala");
+        index.add(2, "scala", "notes");
+
+        assertArrayEquals(new long[] {2, 1}, index.search("scala", 0, 10).getIds());
+    }
+
+    @Test
+    void phrasesRequireTheWordsInOrder() {
+        FullTextIndex index = new FullTextIndex(256, 8);
+        index.add(1, "", "lazy streams everywhere");
+        index.add(2, "", "streams are lazy");
+
+        assertArrayEquals(new long[] {1}, index.search("\"lazy streams\"", 0, 10).getIds());
+        assertEquals(2, index.search("lazy streams", 0, 10).getTotal());
+    }
+
+    @Test
+    void pagesThroughTheOrderedHits() {
+        FullTextIndex index = new FullTextIndex(256, 8);
+        index.add(1, "", "rust");
+        index.add(2, "", "rust rust rust words");
+        index.add(3, "", "rust rust words words words");
+
+        long[] all = index.search("rust", 0, 10).getIds();
+        FullTextIndex.Hits second = index.search("rust", 1, 1);
+
+        assertEquals(3, second.getTotal());
+        assertArrayEquals(new long[] {all[1]}, second.getIds());
+        assertEquals(0, index.search("rust", 5, 10).getIds().length);
+    }
+
+    @Test
+    void updatesAndRemovalsSurviveFlushesAndMerges() {
+        FullTextIndex index = new FullTextIndex(2, 2);
+        for (long id = 1; id <= 10; id++) {
+            index.add(id, "post " + id, id % 2 == 0 ? "even java" : "odd python");
+        }
+        index.add(4, "post 4", "now python");
+        index.remove(6);
+
+        FullTextIndex.Hits java = index.search("java", 0, 10);
+        assertEquals(3, java.getTotal());
+        assertArrayEquals(new long[] {2, 8, 10}, sorted(java.getIds()));
+        assertEquals(6, index.search("python", 0, 10).getTotal());
+        assertEquals(9, index.size());
+        assertTrue(index.segmentCount() < 5);
+    }
+
+    private static long[] sorted(long[] ids) {
+        long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
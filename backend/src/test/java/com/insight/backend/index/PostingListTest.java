@@ -0,0 +1,60 @@
+package com.insight.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingListTest {
+
+    @Test
+    void smallGapsTakeOneByteEach() {
+        PostingList list = new PostingList();
+        for (long id = 1; id <= 100; id++) {
+            list.add(id);
+        }
+
+        assertEquals(100, list.size());
+        assertEquals(100, list.sizeInBytes());
+        assertEquals(100, list.toArray()[99]);
+    }
+
+    @Test
+    void roundTripsLargeGaps() {
+        long[] ids = {0, 1, 128, 16512, 1L << 35, (1L << 56) + 3, Long.MAX_VALUE};
+        PostingList list = new PostingList();
+        for (long id : ids) {
+            assertTrue(list.add(id));
+        }
+
+        assertArrayEquals(ids, list.toArray());
+    }
+
+    @Test
+    void outOfOrderAddsKeepTheSetSorted() {
+        PostingList list = new PostingList();
+        list.add(10);
+        list.add(20);
+        assertTrue(list.add(5));
+        assertTrue(list.add(15));
+        assertFalse(list.add(10));
+        assertFalse(list.add(20));
+
+        assertArrayEquals(new long[] {5, 10, 15, 20}, list.toArray());
+        assertTrue(list.add(1L << 40));
+        assertArrayEquals(new long[] {5, 10, 15, 20, 1L << 40}, list.toArray());
+    }
+
+    @Test
+    void intersectsAndUnitesSortedArrays() {
+        long[] a = {1, 3, 5, 7};
+        long[] b = {3, 4, 5, 8};
+
+        assertArrayEquals(new long[] {3, 5}, PostingList.intersect(a, b));
+        assertArrayEquals(new long[] {1, 3, 4, 5, 7, 8}, PostingList.union(a, b));
+        assertArrayEquals(new long[0], PostingList.intersect(a, new long[0]));
+        assertArrayEquals(a, PostingList.union(a, new long[0]));
+    }
+}
@@ -0,0 +1,124 @@
+package com.insight.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrefixIndexTest {
+
+    private static PrefixIndex loaded() {
+        PrefixIndex index = new PrefixIndex(4);
+        index.putAll(Arrays.asList("java", "javascript", "jazz", "python", "jakarta"),
+            new long[] {1, 2, 3, 4, 5}, new long[] {10, 50, 30, 40, 20});
+        return index;
+    }
+
+    @Test
+    void returnsTheHeaviestMatchesFirst() {
+        PrefixIndex index = loaded();
+
+        long[][] top = index.complete("ja", 2);
+        assertArrayEquals(new long[] {2, 3}, top[0]);
+        assertArrayEquals(new long[] {50, 30}, top[1]);
+        assertArrayEquals(new long[] {2, 3, 5, 1}, index.complete("ja", 10)[0]);
+        assertArrayEquals(new long[] {2, 1}, index.complete("java", 10)[0]);
+        assertArrayEquals(new long[] {2}, index.complete("", 1)[0]);
+        assertEquals(0, index.complete("x", 5)[0].length);
+        assertEquals(0, index.complete("javascripts", 5)[0].length);
+    }
+
+    @Test
+    void reweightingASealedEntryUpdatesTheMaxTree() {
+        PrefixIndex index = loaded();
+
+        index.put("java", 1, 100);
+        assertArrayEquals(new long[] {1, 2}, index.complete("ja", 2)[0]);
+
+        index.put("java", 1, 0);
+        assertArrayEquals(new long[] {2, 3, 5, 1}, index.complete("ja", 10)[0]);
+    }
+
+    @Test
+    void tailEntriesCompeteWithSealedOnes() {
+        PrefixIndex index = loaded();
+
+        index.put("jam", 6, 45);
+        assertEquals(6, index.size());
+        assertArrayEquals(new long[] {2, 6, 3}, index.complete("ja", 3)[0]);
+        assertArrayEquals(new long[] {6}, index.complete("jam", 3)[0]);
+    }
+
+    @Test
+    void breaksWeightTiesByKeyThenId() {
+        PrefixIndex index = new PrefixIndex(16);
+        index.put("ab", 7, 5);
+        index.put("aa", 9, 5);
+        index.put("aa", 8, 5);
+
+        assertArrayEquals(new long[] {8, 9, 7}, index.complete("a", 3)[0]);
+    }
+
+    @Test
+    void matchesABruteForceScanAcrossMerges() {
+        Random random = new Random(7);
+        PrefixIndex index = new PrefixIndex(8);
+        Map<String, Long> weights = new HashMap<>();
+        for (int step = 0; step < 2000; step++) {
+            String key = randomKey(random);
+            long id = random.nextInt(5);
+            long weight = random.nextInt(50);
+            index.put(key, id, weight);
+            weights.put(key + "|" + id, weight);
+
+            if (step % 100 == 99) {
+                String prefix = randomKey(random).substring(0, 1 + random.nextInt(2));
+                int limit = 1 + random.nextInt(10);
+                long[][] expected = bruteForce(weights, prefix, limit);
+                long[][] actual = index.complete(prefix, limit);
+                assertArrayEquals(expected[0], actual[0], "ids for " + prefix);
+                assertArrayEquals(expected[1], actual[1], "weights for " + prefix);
+            }
+        }
+        assertEquals(weights.size(), index.size());
+    }
+
+    private static String randomKey(Random random) {
+        char[] key = new char[2 + random.nextInt(3)];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(key);
+    }
+
+    private static long[][] bruteForce(Map<String, Long> weights, String prefix, int limit) {
+        List<Object[]> matches = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : weights.entrySet()) {
+            String[] parts = entry.getKey().split("\\|");
+            if (parts[0].startsWith(prefix)) {
+                matches.add(new Object[] {parts[0], Long.parseLong(parts[1]), entry.getValue()});
+            }
+        }
+        matches.sort((a, b) -> {
+            if (!a[2].equals(b[2])) {
+                return Long.compare((Long) b[2], (Long) a[2]);
+            }
+            int cmp = ((String) a[0]).compareTo((String) b[0]);
+            return cmp != 0 ? cmp : Long.compare((Long) a[1], (Long) b[1]);
+        });
+        int count = Math.min(limit, matches.size());
+        long[][] result = {new long[count], new long[count]};
+        for (int i = 0; i < count; i++) {
+            result[0][i] = (Long) matches.get(i)[1];
+            result[1][i] = (Long) matches.get(i)[2];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package com.insight.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankSeriesTest {
+
+    @Test
+    void roundTripsNegativeChangesAndLargeGaps() {
+        long[] days = {0, 1, 1_000_000, 1_000_001, 3_000_000_000L};
+        long[] ranks = {500, 3, 40, 1, 2_000_000_000L};
+        long[] scores = {10, -20, 1_000_000_000_000L, -5_000_000_000L, 0};
+        RankSeries series = new RankSeries();
+        for (int i = 0; i < days.length; i++) {
+            series.append(days[i], ranks[i], scores[i]);
+        }
+
+        RankSeries decoded = RankSeries.decode(series.toBytes());
+        long[][] points = decoded.range(Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(days.length, decoded.points());
+        assertArrayEquals(days, points[0]);
+        assertArrayEquals(ranks, points[1]);
+        assertArrayEquals(scores, points[2]);
+    }
+
+    @Test
+    void aSteadyDayCostsThreeBytes() {
+        RankSeries series = new RankSeries();
+        series.append(19000, 7, 120);
+        int before = series.sizeInBytes();
+
+        series.append(19001, 7, 120);
+
+        assertEquals(3, series.sizeInBytes() - before);
+    }
+
+    @Test
+    void decodedSeriesKeepsAppending() {
+        RankSeries series = new RankSeries();
+        series.append(10, 5, 50);
+        series.append(11, 4, 60);
+
+        RankSeries decoded = RankSeries.decode(series.toBytes());
+        decoded.append(12, 6, 40);
+
+        long[][] points = decoded.range(0, 100);
+        assertArrayEquals(new long[] {10, 11, 12}, points[0]);
+        assertArrayEquals(new long[] {5, 4, 6}, points[1]);
+        assertArrayEquals(new long[] {50, 60, 40}, points[2]);
+    }
+
+    @Test
+    void rangeKeepsOnlyTheRequestedDays() {
+        RankSeries series = new RankSeries();
+        for (long day = 100; day < 110; day++) {
+            series.append(day, day - 99, day * 10);
+        }
+
+        long[][] points = series.range(103, 105);
+
+        assertArrayEquals(new long[] {103, 104, 105}, points[0]);
+        assertArrayEquals(new long[] {4, 5, 6}, points[1]);
+        assertEquals(0, series.range(200, 300)[0].length);
+    }
+
+    @Test
+    void rejectsDaysThatAreNotAfterTheLast() {
+        RankSeries series = new RankSeries();
+        assertFalse(series.covers(5));
+        series.append(5, 1, 1);
+
+        assertTrue(series.covers(5));
+        assertTrue(series.covers(4));
+        assertFalse(series.covers(6));
+        assertThrows(IllegalArgumentException.class, () -> series.append(5, 2, 2));
+        assertThrows(IllegalArgumentException.class, () -> series.append(3, 2, 2));
+    }
+
+    @Test
+    void encodeStepMatchesTheBytesAppendWrites() {
+        RankSeries series = new RankSeries();
+        series.append(10, 3, 30);
+        int offset = series.sizeInBytes();
+        series.append(14, 9, -5);
+
+        byte[] appended = Arrays.copyOfRange(series.toBytes(), offset, series.sizeInBytes());
+        assertArrayEquals(appended, RankSeries.encodeStep(4, 6, -35));
+
+        byte[] step = RankSeries.encodeStep(1, -8, 95);
+        byte[] joined = Arrays.copyOf(series.toBytes(), series.sizeInBytes() + step.length);
+        System.arraycopy(step, 0, joined, series.sizeInBytes(), step.length);
+        long[][] points = RankSeries.decode(joined).range(0, 100);
+        assertArrayEquals(new long[] {10, 14, 15}, points[0]);
+        assertArrayEquals(new long[] {3, 9, 1}, points[1]);
+        assertArrayEquals(new long[] {30, -5, 90}, points[2]);
+    }
+}
@@ -0,0 +1,102 @@
+package com.insight.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankTreeTest {
+
+    @Test
+    void ranksByScoreDescendingThenIdAscending() {
+        RankTree tree = new RankTree();
+        tree.put(1, 10);
+        tree.put(2, 10);
+        tree.put(3, 20);
+        tree.put(4, 5);
+
+        assertEquals(1, tree.rankOf(3));
+        assertEquals(2, tree.rankOf(1));
+        assertEquals(3, tree.rankOf(2));
+        assertEquals(4, tree.rankOf(4));
+        assertEquals(0, tree.rankOf(99));
+        assertArrayEquals(new long[] {3, 1, 2, 4}, tree.idsFrom(0, 10));
+    }
+
+    @Test
+    void countBeforeSplitsTiesById() {
+        RankTree tree = new RankTree();
+        tree.put(1, 10);
+        tree.put(2, 10);
+        tree.put(3, 20);
+        tree.put(4, 5);
+
+        assertEquals(0, tree.countBefore(20, 3));
+        assertEquals(1, tree.countBefore(10, 0));
+        assertEquals(1, tree.countBefore(10, 1));
+        assertEquals(2, tree.countBefore(10, 2));
+        assertEquals(3, tree.countBefore(10, 5));
+        assertEquals(0, tree.countBefore(100, 0));
+        assertEquals(4, tree.countBefore(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void putMovesAndRemoveDetaches() {
+        RankTree tree = new RankTree();
+        tree.put(1, 10);
+        tree.put(2, 10);
+        tree.put(3, 20);
+        tree.put(4, 5);
+
+        assertEquals(1, tree.put(4, 30));
+        assertEquals(2, tree.rankOf(3));
+        assertEquals(4, tree.size());
+        assertEquals(30, tree.scoreOf(4));
+
+        assertTrue(tree.remove(1));
+        assertFalse(tree.remove(1));
+        assertFalse(tree.contains(1));
+        assertEquals(3, tree.rankOf(2));
+        assertArrayEquals(new long[] {3, 2}, tree.idsFrom(1, 5));
+        assertArrayEquals(new long[0], tree.idsFrom(3, 5));
+        assertArrayEquals(new long[0], tree.idsFrom(0, -1));
+    }
+
+    @Test
+    void matchesSortedOrderUnderRandomMoves() {
+        Random random = new Random(42);
+        RankTree tree = new RankTree();
+        Map<Long, Long> scores = new HashMap<>();
+        for (int step = 0; step < 5000; step++) {
+            long id = random.nextInt(300);
+            if (random.nextInt(10) == 0) {
+                tree.remove(id);
+                scores.remove(id);
+            } else {
+                // a narrow score range keeps plenty of ties
+                long score = random.nextInt(20) - 10;
+                tree.put(id, score);
+                scores.put(id, score);
+            }
+        }
+
+        List<Long> expected = new ArrayList<>(scores.keySet());
+        expected.sort((a, b) -> !scores.get(a).equals(scores.get(b)) ? Long.compare(scores.get(b), scores.get(a)) : Long.compare(a, b));
+        long[] ids = tree.idsFrom(0, expected.size());
+        assertEquals(expected.size(), ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            long id = expected.get(i);
+            assertEquals(id, ids[i]);
+            assertEquals(i + 1, tree.rankOf(id));
+            assertEquals(i, tree.countBefore(scores.get(id), id));
+        }
+    }
+}
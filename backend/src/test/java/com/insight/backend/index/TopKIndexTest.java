@@ -0,0 +1,102 @@
+package com.insight.backend.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKIndexTest {
+
+    @Test
+    void returnsNullUntilLoaded() {
+        TopKIndex index = new TopKIndex(3);
+        index.update(1, 10);
+
+        assertFalse(index.isLoaded());
+        assertNull(index.top(1));
+    }
+
+    @Test
+    void evictsTheWorstMemberWhenABetterIdArrives() {
+        TopKIndex index = new TopKIndex(3);
+        assertTrue(index.load(index.beginLoad(), new long[] {1, 2, 3}, new long[] {30, 20, 10}, false));
+
+        index.update(4, 25);
+
+        assertFalse(index.contains(3));
+        assertArrayEquals(new long[] {1, 4, 2}, index.top(3)[0]);
+        assertArrayEquals(new long[] {30, 25, 20}, index.top(3)[1]);
+    }
+
+    @Test
+    void keepsTheHeapWhenAWorseIdArrives() {
+        TopKIndex index = new TopKIndex(3);
+        index.load(index.beginLoad(), new long[] {1, 2, 3}, new long[] {30, 20, 10}, false);
+
+        index.update(4, 10);
+
+        assertFalse(index.contains(4));
+        assertArrayEquals(new long[] {1, 2, 3}, index.top(3)[0]);
+    }
+
+    @Test
+    void needsARefillOnceAMemberDropsBelowTheBound() {
+        TopKIndex index = new TopKIndex(3);
+        index.load(index.beginLoad(), new long[] {1, 2, 3}, new long[] {30, 20, 10}, false);
+        index.update(4, 25);
+        // id 3 was evicted at score 10, so id 2 at 5 may no longer be third
+        index.update(2, 5);
+
+        assertNull(index.top(3));
+        assertArrayEquals(new long[] {1, 4}, index.top(2)[0]);
+
+        assertTrue(index.load(index.beginLoad(), new long[] {1, 4, 3}, new long[] {30, 25, 10}, false));
+        assertArrayEquals(new long[] {1, 4, 3}, index.top(3)[0]);
+    }
+
+    @Test
+    void exhaustiveLoadProvesEveryPosition() {
+        TopKIndex index = new TopKIndex(3);
+        index.load(index.beginLoad(), new long[] {1, 2}, new long[] {5, 5}, true);
+
+        index.update(2, -1);
+
+        assertArrayEquals(new long[] {1, 2}, index.top(2)[0]);
+        assertArrayEquals(new long[] {1, 2}, index.top(3)[0]);
+    }
+
+    @Test
+    void anEvictionEndsTheExhaustiveProof() {
+        TopKIndex index = new TopKIndex(2);
+        index.load(index.beginLoad(), new long[] {1}, new long[] {5}, true);
+        index.update(2, 4);
+        index.update(3, 6);
+
+        assertArrayEquals(new long[] {3, 1}, index.top(2)[0]);
+        assertNull(index.top(3));
+    }
+
+    @Test
+    void replaysUpdatesThatRacedWithTheLoad() {
+        TopKIndex index = new TopKIndex(3);
+        long ticket = index.beginLoad();
+        index.update(5, 100);
+
+        index.load(ticket, new long[] {1, 2, 3}, new long[] {30, 20, 10}, false);
+
+        assertArrayEquals(new long[] {5, 1, 2}, index.top(3)[0]);
+    }
+
+    @Test
+    void rejectsALoadStartedBeforeAClear() {
+        TopKIndex index = new TopKIndex(3);
+        long ticket = index.beginLoad();
+        index.clear();
+
+        assertFalse(index.load(ticket, new long[] {1}, new long[] {10}, true));
+        assertFalse(index.isLoaded());
+        assertTrue(index.load(index.beginLoad(), new long[] {1}, new long[] {10}, true));
+    }
+}
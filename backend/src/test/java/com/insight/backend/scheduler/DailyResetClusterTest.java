@@ -0,0 +1,187 @@
+package com.insight.backend.scheduler;
+
+import com.insight.backend.InsightApplication;
+import com.insight.backend.dto.RankHistoryPoint;
+import com.insight.backend.model.User;
+import com.insight.backend.model.VoteType;
+import com.insight.backend.service.DailyResetService;
+import com.insight.backend.service.LeaderboardService;
+import com.insight.backend.service.LeaseService;
+import com.insight.backend.service.PostService;
+import com.insight.backend.service.RankHistoryService;
+import com.insight.backend.service.TopPostsService;
+import com.insight.backend.service.UserService;
+import com.insight.backend.service.VoteScoreAggregator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two application contexts sharing one H2 database, standing in for two nodes of a cluster.
+ */
+class DailyResetClusterTest {
+
+    private static ConfigurableApplicationContext node1;
+    private static ConfigurableApplicationContext node2;
+
+    @BeforeAll
+    static void startNodes() {
+        node1 = startNode("node1");
+        node2 = startNode("node2");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        node2.close();
+        node1.close();
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId) {
+        // arguments, unlike default properties, override application.properties
+        return new SpringApplicationBuilder(InsightApplication.class).run(
+            "--spring.datasource.url=jdbc:h2:mem:cluster-test;DB_CLOSE_DELAY=-1",
+            "--server.port=0",
+            "--scheduler.node-id=" + nodeId,
+            "--scheduler.lease-ttl-ms=1000",
+            "--reset.cron=-",
+            "--logging.level.com.insight.backend=INFO",
+            "--logging.level.org.springframework.security=INFO");
+    }
+
+    @Test
+    void onlyOneNodeHoldsALeaseAtATime() throws Exception {
+        LeaseService[] services = {node1.getBean(LeaseService.class), node2.getBean(LeaseService.class)};
+        CyclicBarrier start = new CyclicBarrier(services.length);
+        CountDownLatch bothTried = new CountDownLatch(services.length);
+        AtomicInteger holders = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(services.length);
+        try {
+            Future<?>[] runs = new Future<?>[services.length];
+            for (int i = 0; i < services.length; i++) {
+                LeaseService service = services[i];
+                runs[i] = pool.submit(() -> {
+                    start.await();
+                    boolean ran = service.runExclusive("cluster-test", lease -> {
+                        holders.incrementAndGet();
+                        try {
+                            // keep the lease until the other node has tried as well
+                            bothTried.countDown();
+                            bothTried.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                    if (!ran) {
+                        bothTried.countDown();
+                    }
+                    return ran;
+                });
+            }
+            for (Future<?> run : runs) {
+                run.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, holders.get());
+    }
+
+    @Test
+    void anExpiredLeasePassesOnAndFencesTheFormerHolder() throws Exception {
+        LeaseService first = node1.getBean(LeaseService.class);
+        LeaseService second = node2.getBean(LeaseService.class);
+
+        LeaseService.Lease stalled = first.tryAcquire("fencing-test");
+        assertNotNull(stalled);
+        assertNull(second.tryAcquire("fencing-test"));
+
+        // no heartbeat renews it, so it expires after the 1 s ttl
+        Thread.sleep(1500);
+        LeaseService.Lease taken = second.tryAcquire("fencing-test");
+
+        assertNotNull(taken);
+        assertTrue(taken.getToken() > stalled.getToken());
+        assertThrows(RuntimeException.class, () -> first.assertHeld(stalled));
+        second.assertHeld(taken);
+        second.release(taken);
+    }
+
+    @Test
+    void theResetRunsOnceAndEveryNodeRefreshes() {
+        DailyResetScheduler scheduler1 = node1.getBean(DailyResetScheduler.class);
+        DailyResetScheduler scheduler2 = node2.getBean(DailyResetScheduler.class);
+        TopPostsService topPosts2 = node2.getBean(TopPostsService.class);
+        JdbcTemplate jdbcTemplate = node1.getBean(JdbcTemplate.class);
+        LocalDate today = LocalDate.now();
+
+        scheduler1.performDailyReset();
+        long before = topPosts2.getVersion();
+        // node2 wins the lease only after node1 has finished the day
+        scheduler2.performDailyReset();
+
+        assertTrue(node2.getBean(DailyResetService.class).isDone(today));
+        Integer starts = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM reset_checkpoints WHERE business_date = ? AND stage = 'STARTED'", Integer.class,
+            Date.valueOf(today));
+        assertEquals(1, starts);
+        assertTrue(topPosts2.getVersion() > before, "node2 dropped its top posts built from the old scores");
+    }
+
+    @Test
+    void aResetOnOneNodeUsesTheScoresVotedOnAnother() {
+        UserService users1 = node1.getBean(UserService.class);
+        PostService posts1 = node1.getBean(PostService.class);
+        User author = users1.createUser("cluster-author", "cluster-author@example.com", "password").join();
+        User voter = users1.createUser("cluster-voter", "cluster-voter@example.com", "password").join();
+        Long postId = posts1.createPost("title", "content", author.getId(), author.getUsername(),
+            Collections.<String>emptyList()).getId();
+        posts1.voteOnPost(postId, voter.getId(), VoteType.UP);
+        // what every node does at midnight before the reset
+        node1.getBean(VoteScoreAggregator.class).flush();
+
+        LeaderboardService leaderboard2 = node2.getBean(LeaderboardService.class);
+        assertNull(leaderboard2.getEntry(author.getId()), "node2 never saw the users made on node1");
+
+        // a date of its own, so the other reset test cannot have done it already
+        LocalDate businessDate = LocalDate.now().minusDays(3);
+        DailyResetService reset2 = node2.getBean(DailyResetService.class);
+        assertTrue(node2.getBean(LeaseService.class).runExclusive(DailyResetService.LEASE,
+            lease -> reset2.run(businessDate, lease)));
+
+        JdbcTemplate jdbcTemplate = node2.getBean(JdbcTemplate.class);
+        Integer expectedRank = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) + 1 FROM users o, users u WHERE u.id = ? "
+                + "AND (o.total_score > u.total_score OR (o.total_score = u.total_score AND o.id < u.id))",
+            Integer.class, author.getId());
+        List<RankHistoryPoint> history = node2.getBean(RankHistoryService.class).getHistory(author.getId(), businessDate, businessDate);
+        assertEquals(1, history.size());
+        assertEquals(1, history.get(0).getScore());
+        assertEquals(expectedRank, history.get(0).getRank());
+        assertEquals(expectedRank, jdbcTemplate.queryForObject("SELECT rank FROM users WHERE id = ?", Integer.class, author.getId()));
+
+        assertNotNull(leaderboard2.getEntry(author.getId()), "node2 reloaded its leaderboard after the reset");
+        assertEquals(1, leaderboard2.getEntry(author.getId()).getScore());
+        assertEquals(expectedRank.intValue(), leaderboard2.getRank(author.getId()));
+    }
+}
@@ -0,0 +1,95 @@
+package com.insight.backend.security;
+
+import com.insight.backend.model.User;
+import com.insight.backend.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:token-cache-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-"
+})
+@AutoConfigureMockMvc
+class TokenCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String tokenFor(String name) {
+        User user = userService.createUser(name, name + "@example.com", "password").join();
+        return jwtUtil.generateToken(user.getUsername(), user.getId());
+    }
+
+    private String historyUrl(String token) {
+        return "/api/users/" + jwtUtil.extractUserId(token) + "/rank-history";
+    }
+
+    @Test
+    void aLoggedOutTokenIsRefused() throws Exception {
+        String token = tokenFor("logout-user");
+        String bearer = "Bearer " + token;
+        mockMvc.perform(get(historyUrl(token)).header(HttpHeaders.AUTHORIZATION, bearer))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/auth/logout").header(HttpHeaders.AUTHORIZATION, bearer))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(get(historyUrl(token)).header(HttpHeaders.AUTHORIZATION, bearer))
+            .andExpect(status().is4xxClientError());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM revoked_tokens WHERE token_hash = ?",
+            Integer.class, TokenCache.hash(token)));
+    }
+
+    @Test
+    void aRevocationAnotherNodeStoredIsPickedUpBySync() throws Exception {
+        String token = tokenFor("other-node-user");
+        String hash = TokenCache.hash(token);
+        mockMvc.perform(get(historyUrl(token)).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+            .andExpect(status().isOk());
+        assertNotNull(tokenCache.get(hash));
+
+        // the logout went to another node, which only wrote the row
+        jdbcTemplate.update("INSERT INTO revoked_tokens (token_hash, expires_at) VALUES (?, ?)",
+            hash, jwtUtil.extractExpiration(token).getTime());
+        tokenCache.syncRevocations();
+
+        assertNull(tokenCache.get(hash));
+        mockMvc.perform(get(historyUrl(token)).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+            .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void syncForgetsExpiredRevocations() {
+        jdbcTemplate.update("INSERT INTO revoked_tokens (token_hash, expires_at) VALUES (?, ?)",
+            "expired-hash", System.currentTimeMillis() - 1000);
+
+        tokenCache.syncRevocations();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM revoked_tokens WHERE token_hash = ?",
+            Integer.class, "expired-hash"));
+    }
+}
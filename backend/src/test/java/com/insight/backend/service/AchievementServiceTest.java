@@ -0,0 +1,120 @@
+package com.insight.backend.service;
+
+import com.insight.backend.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:achievement-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-"
+})
+class AchievementServiceTest {
+
+    @Autowired
+    private AchievementService achievementService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private VoteScoreAggregator voteScoreAggregator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User newUser(String name) {
+        return userService.createUser(name, name + "@example.com", "password").join();
+    }
+
+    private long storedBits(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT achievement_bits FROM users WHERE id = ?", Long.class, userId);
+    }
+
+    private int rows(Long userId, AchievementRule rule) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM achievements WHERE user_id = ? AND name = ?",
+            Integer.class, userId, rule.getTitle());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Long> earnedCache() {
+        return (Map<Long, Long>) ReflectionTestUtils.getField(achievementService, "earned");
+    }
+
+    @Test
+    void eventsGrantOnlyTheRulesListeningToThem() {
+        User user = newUser("events-user");
+
+        postService.createPost("title", "content", user.getId(), user.getUsername(), Collections.<String>emptyList());
+        assertTrue(achievementService.hasAchievement(user.getId(), AchievementRule.FIRST_POST));
+        assertFalse(achievementService.hasAchievement(user.getId(), AchievementRule.CENTURY_CLUB));
+
+        userService.updateUserScore(user.getId(), 100);
+        assertTrue(achievementService.hasAchievement(user.getId(), AchievementRule.CENTURY_CLUB));
+        assertFalse(achievementService.hasAchievement(user.getId(), AchievementRule.PROLIFIC_POSTER));
+
+        long bits = AchievementRule.FIRST_POST.getBit() | AchievementRule.CENTURY_CLUB.getBit();
+        assertEquals(bits, storedBits(user.getId()) & bits);
+        assertEquals(1, rows(user.getId(), AchievementRule.FIRST_POST));
+        assertEquals(1, rows(user.getId(), AchievementRule.CENTURY_CLUB));
+    }
+
+    @Test
+    void aGrantAnotherNodeMadeIsNotWrittenTwice() {
+        User user = newUser("two-nodes-user");
+        postService.createPost("title", "content", user.getId(), user.getUsername(), Collections.<String>emptyList());
+        assertEquals(1, rows(user.getId(), AchievementRule.FIRST_POST));
+
+        // a second node never saw the grant, so its cache still has the bit clear
+        earnedCache().put(user.getId(), 0L);
+        achievementService.evaluateAll();
+
+        assertTrue(achievementService.hasAchievement(user.getId(), AchievementRule.FIRST_POST));
+        assertEquals(1, rows(user.getId(), AchievementRule.FIRST_POST));
+    }
+
+    @Test
+    void aRankOnlyThisNodeSeesIsNotGranted() {
+        User leader = newUser("stored-leader");
+        User local = newUser("local-leader");
+        // another node's votes put the leader far ahead in the stored scores only
+        jdbcTemplate.update("UPDATE users SET total_score = 1000000 WHERE id = ?", leader.getId());
+        leaderboardService.updateScore(local.getId(), 2000000);
+
+        achievementService.onScoreChanged(local.getId());
+
+        assertEquals(1, leaderboardService.getRank(local.getId()));
+        assertFalse(achievementService.hasAchievement(local.getId(), AchievementRule.RANK_ONE));
+        assertEquals(0, rows(local.getId(), AchievementRule.RANK_ONE));
+    }
+
+    @Test
+    void loadDerivesMissingBitsFromTheRows() {
+        User user = newUser("backfill-user");
+        postService.createPost("title", "content", user.getId(), user.getUsername(), Collections.<String>emptyList());
+        voteScoreAggregator.flush();
+        // a user from before the column existed
+        jdbcTemplate.update("UPDATE users SET achievement_bits = NULL WHERE id = ?", user.getId());
+        earnedCache().remove(user.getId());
+
+        achievementService.load();
+
+        assertTrue(achievementService.hasAchievement(user.getId(), AchievementRule.FIRST_POST));
+        assertEquals(AchievementRule.FIRST_POST.getBit(), storedBits(user.getId()) & AchievementRule.FIRST_POST.getBit());
+    }
+}
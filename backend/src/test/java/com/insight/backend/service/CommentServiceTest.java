@@ -0,0 +1,219 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.CommentNode;
+import com.insight.backend.dto.CommentPage;
+import com.insight.backend.model.User;
+import com.insight.backend.model.VoteType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:comment-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-"
+})
+class CommentServiceTest {
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserService userService;
+
+    private User newUser(String name) {
+        return userService.createUser(name, name + "@example.com", "password").join();
+    }
+
+    private Long newPost(User author) {
+        return postService.createPost("title", "content", author.getId(), author.getUsername(), Collections.<String>emptyList()).getId();
+    }
+
+    private Long reply(Long postId, User author, Long parentId) {
+        return commentService.createComment("comment", postId, author.getId(), author.getUsername(), parentId).getId();
+    }
+
+    private static List<Long> ids(List<CommentNode> nodes) {
+        List<Long> ids = new ArrayList<>();
+        for (CommentNode node : nodes) {
+            ids.add(node.getId());
+        }
+        return ids;
+    }
+
+    private List<User> voters(String prefix, int count) {
+        List<User> voters = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            voters.add(newUser(prefix + "-" + i));
+        }
+        return voters;
+    }
+
+    private void vote(Long commentId, List<User> voters, int up, int down) {
+        for (int i = 0; i < up + down; i++) {
+            commentService.voteOnComment(commentId, voters.get(i).getId(), i < up ? VoteType.UP : VoteType.DOWN);
+        }
+    }
+
+    // depth first, so a page's ids come out in thread order
+    private static void flatten(List<CommentNode> nodes, List<Long> into) {
+        for (CommentNode node : nodes) {
+            into.add(node.getId());
+            flatten(node.getReplies(), into);
+        }
+    }
+
+    @Test
+    void repliesAreTheDirectChildrenAsNodes() {
+        User author = newUser("replies-author");
+        Long postId = newPost(author);
+        Long root = reply(postId, author, null);
+        Long first = reply(postId, author, root);
+        Long second = reply(postId, author, root);
+        reply(postId, author, first);
+
+        List<CommentNode> replies = commentService.getReplies(root);
+
+        assertEquals(Arrays.asList(first, second), ids(replies));
+        for (CommentNode node : replies) {
+            assertEquals(root, node.getParentCommentId());
+            assertEquals("replies-author", node.getUser().getUsername());
+            assertTrue(node.getReplies().isEmpty());
+        }
+    }
+
+    @Test
+    void subtreePagesResumeAcrossSubtrees() {
+        User author = newUser("subtree-author");
+        Long postId = newPost(author);
+        Long root = reply(postId, author, null);
+        Long a = reply(postId, author, root);
+        Long b = reply(postId, author, root);
+        Long a1 = reply(postId, author, a);
+        Long b1 = reply(postId, author, b);
+        Long a2 = reply(postId, author, a);
+        Long a1x = reply(postId, author, a1);
+        // another thread of the same post stays out of the walk
+        reply(postId, author, reply(postId, author, null));
+
+        List<List<Long>> pages = new ArrayList<>();
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            CommentPage page = commentService.getRepliesPage(root, CommentService.SORT_NEW, cursor, 2);
+            List<Long> ids = new ArrayList<>();
+            flatten(page.getComments(), ids);
+            pages.add(ids);
+            walked.addAll(ids);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(Arrays.asList(a, a1, a1x, a2, b, b1), walked);
+        assertEquals(Arrays.asList(Arrays.asList(a, a1), Arrays.asList(a1x, a2), Arrays.asList(b, b1)), pages);
+    }
+
+    @Test
+    void aPageStartingInsideASubtreeNamesTheParents() {
+        User author = newUser("resume-author");
+        Long postId = newPost(author);
+        Long root = reply(postId, author, null);
+        Long a = reply(postId, author, root);
+        Long a1 = reply(postId, author, a);
+        Long a2 = reply(postId, author, a);
+
+        CommentPage first = commentService.getRepliesPage(root, CommentService.SORT_NEW, null, 2);
+        CommentPage second = commentService.getRepliesPage(root, CommentService.SORT_NEW, first.getNextCursor(), 2);
+
+        assertEquals(Collections.singletonList(a), ids(first.getComments()));
+        assertEquals(Collections.singletonList(a1), ids(first.getComments().get(0).getReplies()));
+        // a2's parent was on the first page, so a2 comes back at the top level
+        assertEquals(Collections.singletonList(a2), ids(second.getComments()));
+        assertEquals(a, second.getComments().get(0).getParentCommentId());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void aCursorFromAnotherSubtreeIsRejected() {
+        User author = newUser("foreign-author");
+        Long postId = newPost(author);
+        Long left = reply(postId, author, null);
+        Long right = reply(postId, author, null);
+        reply(postId, author, left);
+        reply(postId, author, left);
+
+        String leftCursor = commentService.getRepliesPage(left, CommentService.SORT_NEW, null, 1).getNextCursor();
+
+        assertThrows(IllegalArgumentException.class,
+            () -> commentService.getRepliesPage(right, CommentService.SORT_NEW, leftCursor, 1));
+    }
+
+    @Test
+    void theWilsonBoundFavoursMoreEvidence() {
+        assertEquals(0, CommentRankingService.wilsonKey(0, 0));
+        assertEquals(0, CommentRankingService.wilsonKey(0, 5));
+        assertTrue(CommentRankingService.wilsonKey(10, 0) > CommentRankingService.wilsonKey(1, 0));
+        assertTrue(CommentRankingService.wilsonKey(100, 10) > CommentRankingService.wilsonKey(5, 0));
+        assertTrue(CommentRankingService.wilsonKey(3, 1) > CommentRankingService.wilsonKey(1, 0));
+        assertTrue(CommentRankingService.wilsonKey(3, 0) > CommentRankingService.wilsonKey(3, 1));
+    }
+
+    @Test
+    void bestFirstPagesFollowTheWilsonBound() {
+        User author = newUser("best-author");
+        List<User> voters = voters("best-voter", 4);
+        Long postId = newPost(author);
+        Long low = reply(postId, author, null);
+        Long high = reply(postId, author, null);
+        Long mixed = reply(postId, author, null);
+        vote(low, voters, 1, 0);
+        vote(high, voters, 3, 0);
+        vote(mixed, voters, 3, 1);
+
+        List<Long> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            CommentPage page = commentService.getThreadPage(postId, CommentService.SORT_BEST, cursor, 1, 0);
+            walked.addAll(ids(page.getComments()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(Arrays.asList(high, mixed, low), walked);
+    }
+
+    @Test
+    void aBestCursorResumesAfterAReturnedReplyMoves() {
+        User author = newUser("best-cursor-author");
+        List<User> voters = voters("best-cursor-voter", 4);
+        Long postId = newPost(author);
+        Long root = reply(postId, author, null);
+        Long first = reply(postId, author, root);
+        Long second = reply(postId, author, root);
+        Long third = reply(postId, author, root);
+        vote(first, voters, 3, 0);
+        vote(second, voters, 2, 0);
+        vote(third, voters, 1, 0);
+
+        CommentPage page = commentService.getRepliesPage(root, CommentService.SORT_BEST, null, 2);
+        assertEquals(Arrays.asList(first, second), ids(page.getComments()));
+
+        // the last reply returned climbs above the first; the next page neither repeats nor skips
+        vote(second, voters("best-cursor-late", 4), 4, 0);
+        assertEquals(second, commentService.getRepliesPage(root, CommentService.SORT_BEST, null, 1).getComments().get(0).getId());
+        CommentPage next = commentService.getRepliesPage(root, CommentService.SORT_BEST, page.getNextCursor(), 2);
+
+        assertEquals(Collections.singletonList(third), ids(next.getComments()));
+        assertNull(next.getNextCursor());
+    }
+}
@@ -0,0 +1,154 @@
+package com.insight.backend.service;
+
+import com.insight.backend.model.User;
+import com.insight.backend.model.VoteType;
+import com.insight.backend.scheduler.DailyResetScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:daily-reset-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-",
+    "reset.retry-delay-ms=50"
+})
+class DailyResetServiceTest {
+
+    private static final long WINDOW_MINUTES = 120;
+
+    @SpyBean
+    private DailyResetService dailyResetService;
+
+    @Autowired
+    private DailyResetScheduler dailyResetScheduler;
+
+    @Autowired
+    private LeaseService leaseService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private VoteScoreAggregator voteScoreAggregator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void restoreWindow() {
+        ReflectionTestUtils.setField(dailyResetService, "resumeWindowMinutes", WINDOW_MINUTES);
+    }
+
+    private User newUser(String name) {
+        return userService.createUser(name, name + "@example.com", "password").join();
+    }
+
+    private Long votedPost(String prefix) {
+        User author = newUser(prefix + "-author");
+        Long postId = postService.createPost("title", "content", author.getId(), author.getUsername(),
+            Collections.<String>emptyList()).getId();
+        postService.voteOnPost(postId, newUser(prefix + "-voter").getId(), VoteType.UP);
+        voteScoreAggregator.flush();
+        return postId;
+    }
+
+    private int score(Long postId) {
+        return jdbcTemplate.queryForObject("SELECT score FROM posts WHERE id = ?", Integer.class, postId);
+    }
+
+    private int checkpoints(LocalDate businessDate, String stage) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reset_checkpoints WHERE business_date = ? AND stage = ?",
+            Integer.class, Date.valueOf(businessDate), stage);
+    }
+
+    private void leaveUnfinished(LocalDate businessDate) {
+        // what a crash right after the start of a run leaves behind
+        jdbcTemplate.update("INSERT INTO reset_checkpoints (business_date, stage, range_from, range_to, rows_affected, duration_ms, completed_at) "
+            + "VALUES (?, 'STARTED', -1, -1, 0, 0, CURRENT_TIMESTAMP)", Date.valueOf(businessDate));
+    }
+
+    @Test
+    void aRunResetsScoresOnceAndCheckpointsEveryStage() {
+        Long postId = votedPost("run");
+        LocalDate businessDate = LocalDate.of(2020, 3, 1);
+        boolean[] reran = new boolean[1];
+
+        assertTrue(leaseService.runExclusive(DailyResetService.LEASE, lease -> {
+            assertTrue(dailyResetService.run(businessDate, lease));
+            reran[0] = dailyResetService.run(businessDate, lease);
+        }));
+
+        assertFalse(reran[0]);
+        assertTrue(dailyResetService.isDone(businessDate));
+        assertEquals(0, score(postId));
+        for (DailyResetService.Stage stage : DailyResetService.Stage.values()) {
+            assertTrue(checkpoints(businessDate, stage.name()) > 0, stage + " has a checkpoint");
+        }
+    }
+
+    @Test
+    void aJobInsideTheResumeWindowIsFinished() {
+        Long postId = votedPost("resume");
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        leaveUnfinished(yesterday);
+        // any time of day is within two days of yesterday's midnight
+        ReflectionTestUtils.setField(dailyResetService, "resumeWindowMinutes", 2 * 24 * 60L);
+
+        leaseService.runExclusive(DailyResetService.LEASE, dailyResetService::resumeUnfinished);
+
+        assertEquals(1, checkpoints(yesterday, "FINISHED"));
+        assertEquals(0, score(postId));
+    }
+
+    @Test
+    void aJobPastTheResumeWindowIsAbandonedWithoutTouchingScores() {
+        Long postId = votedPost("abandon");
+        LocalDate businessDate = LocalDate.now().minusDays(3);
+        leaveUnfinished(businessDate);
+
+        leaseService.runExclusive(DailyResetService.LEASE, dailyResetService::resumeUnfinished);
+
+        assertTrue(dailyResetService.isDone(businessDate));
+        assertEquals(1, checkpoints(businessDate, "ABANDONED"));
+        assertEquals(0, checkpoints(businessDate, "FINISHED"));
+        assertEquals(1, score(postId));
+    }
+
+    @Test
+    void aFailedResetIsRetried() throws Exception {
+        LocalDate today = LocalDate.now();
+        doThrow(new RuntimeException("database unavailable")).doCallRealMethod()
+            .when(dailyResetService).run(any(LocalDate.class), any(LeaseService.Lease.class));
+
+        dailyResetScheduler.performDailyReset();
+
+        long giveUpAt = System.currentTimeMillis() + 10_000;
+        while (!dailyResetService.isDone(today) && System.currentTimeMillis() < giveUpAt) {
+            Thread.sleep(50);
+        }
+        assertTrue(dailyResetService.isDone(today));
+        assertEquals(1, checkpoints(today, "FINISHED"));
+        // the failure stays on record, stack trace and all
+        String error = jdbcTemplate.queryForObject(
+            "SELECT error FROM reset_checkpoints WHERE business_date = ? AND stage = 'FAILED'", String.class, Date.valueOf(today));
+        assertTrue(error.contains("database unavailable"), error);
+        assertTrue(error.contains("at com.insight.backend."), error);
+    }
+}
@@ -0,0 +1,160 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.FeedPage;
+import com.insight.backend.dto.PostSummary;
+import com.insight.backend.model.User;
+import com.insight.backend.model.VoteType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:feed-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FeedServiceTest {
+
+    private static final int POSTS = 7;
+
+    @Autowired
+    private FeedService feedService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private VoteScoreAggregator voteScoreAggregator;
+
+    @Autowired
+    private HotRankingService hotRankingService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    private final List<Long> postIds = new ArrayList<>();
+
+    @BeforeAll
+    void createPosts() {
+        List<User> voters = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            // one post per author and day
+            User author = userService.createUser("feed-author-" + i, "feed-author-" + i + "@example.com", "password").join();
+            voters.add(author);
+            postIds.add(postService.createPost("post " + i, "content", author.getId(), author.getUsername(),
+                Collections.<String>emptyList()).getId());
+        }
+        // post i gets i up votes, so the top order is the reverse of the creation order
+        for (int i = 0; i < POSTS; i++) {
+            for (int v = 0; v < i; v++) {
+                postService.voteOnPost(postIds.get(i), voters.get(v).getId(), VoteType.UP);
+            }
+        }
+        voteScoreAggregator.flush();
+    }
+
+    private List<Long> readAll(String sort, int limit) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            FeedPage page = feedService.getFeed(sort, cursor, limit);
+            assertTrue(page.getPosts().size() <= limit);
+            for (PostSummary post : page.getPosts()) {
+                ids.add(post.getId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    @Test
+    void newestFirstPagesCoverEveryPostOnce() {
+        List<Long> expected = new ArrayList<>(postIds);
+        Collections.reverse(expected);
+
+        assertEquals(expected, readAll(FeedService.SORT_NEW, 3));
+    }
+
+    @Test
+    void topPagesFollowTheScores() {
+        List<Long> ids = readAll(FeedService.SORT_TOP, 2);
+
+        List<Long> expected = new ArrayList<>(postIds);
+        Collections.reverse(expected);
+        assertEquals(expected, ids);
+        assertEquals(POSTS - 1, feedService.getFeed(FeedService.SORT_TOP, null, 1).getPosts().get(0).getScore());
+    }
+
+    @Test
+    void hotPagesSpanningARescoreNeitherRepeatNorSkip() {
+        List<Long> expected = new ArrayList<>(postIds);
+        Collections.reverse(expected);
+        FeedPage first = feedService.getFeed(FeedService.SORT_HOT, null, 3);
+        List<Long> ids = new ArrayList<>();
+        for (PostSummary post : first.getPosts()) {
+            ids.add(post.getId());
+        }
+
+        // every key changes in the re-decay but the order does not, so the cursor's key is stale
+        Object gravity = ReflectionTestUtils.getField(hotRankingService, "gravity");
+        ReflectionTestUtils.setField(hotRankingService, "gravity", 0.5);
+        try {
+            hotRankingService.redecay();
+            String cursor = first.getNextCursor();
+            while (cursor != null) {
+                FeedPage page = feedService.getFeed(FeedService.SORT_HOT, cursor, 3);
+                for (PostSummary post : page.getPosts()) {
+                    ids.add(post.getId());
+                }
+                cursor = page.getNextCursor();
+            }
+        } finally {
+            ReflectionTestUtils.setField(hotRankingService, "gravity", gravity);
+            hotRankingService.redecay();
+        }
+
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    void aRescoreThatKeepsTheHotOrderKeepsItsTag() {
+        String tag = resourceVersions.hotTag();
+
+        hotRankingService.redecay();
+
+        assertEquals(tag, resourceVersions.hotTag());
+        assertEquals(readAll(FeedService.SORT_HOT, POSTS), readAll(FeedService.SORT_HOT, 2));
+    }
+
+    @Test
+    void aFullLastPageHasNoCursor() {
+        FeedPage page = feedService.getFeed(FeedService.SORT_NEW, null, POSTS);
+
+        assertEquals(POSTS, page.getPosts().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void rejectsUnknownSortsAndForeignOrBrokenCursors() {
+        String topCursor = feedService.getFeed(FeedService.SORT_TOP, null, 1).getNextCursor();
+
+        assertThrows(IllegalArgumentException.class, () -> feedService.getFeed("random", null, 5));
+        assertThrows(IllegalArgumentException.class, () -> feedService.getFeed(FeedService.SORT_NEW, topCursor, 5));
+        assertThrows(IllegalArgumentException.class, () -> feedService.getFeed(FeedService.SORT_TOP, "not a cursor", 5));
+    }
+}
@@ -0,0 +1,65 @@
+package com.insight.backend.service;
+
+import com.insight.backend.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:leaderboard-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-"
+})
+class LeaderboardServiceTest {
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private VoteScoreAggregator voteScoreAggregator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int storedRank(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT rank FROM users WHERE id = ?", Integer.class, userId);
+    }
+
+    @Test
+    void aScoreChangeMovesTheServedRankWithoutWritingOne() {
+        User low = userService.createUser("rank-low", "rank-low@example.com", "password").join();
+        User high = userService.createUser("rank-high", "rank-high@example.com", "password").join();
+        userService.updateUserScore(low.getId(), 1);
+        assertTrue(leaderboardService.getRank(low.getId()) < leaderboardService.getRank(high.getId()));
+
+        userService.updateUserScore(high.getId(), 5);
+        voteScoreAggregator.flush();
+
+        assertTrue(leaderboardService.getRank(high.getId()) < leaderboardService.getRank(low.getId()));
+        assertEquals(leaderboardService.getRank(high.getId()), leaderboardService.getEntry(high.getId()).getRank());
+        assertEquals(0, storedRank(high.getId()));
+        assertEquals(0, storedRank(low.getId()));
+    }
+
+    @Test
+    void theResetAssignmentMatchesTheServedRanks() {
+        User first = userService.createUser("assign-first", "assign-first@example.com", "password").join();
+        User second = userService.createUser("assign-second", "assign-second@example.com", "password").join();
+        userService.updateUserScore(first.getId(), 40);
+        userService.updateUserScore(second.getId(), 30);
+        voteScoreAggregator.flush();
+
+        userService.updateUserRanks();
+
+        assertEquals(leaderboardService.getRank(first.getId()), storedRank(first.getId()));
+        assertEquals(leaderboardService.getRank(second.getId()), storedRank(second.getId()));
+        // a second assignment finds nothing to move
+        assertEquals(0, userService.updateUserRanks());
+    }
+}
@@ -0,0 +1,126 @@
+package com.insight.backend.service;
+
+import com.insight.backend.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:hashing-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-",
+    "auth.hashing.threads=1",
+    "auth.hashing.queue-capacity=1",
+    "auth.bcrypt.strength=12"
+})
+@AutoConfigureMockMvc
+class PasswordHashingServiceTest {
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @SpyBean
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void checksPasswordsOfKnownAndUnknownUsers() {
+        User user = userService.createUser("hash-user", "hash-user@example.com", "correct horse").join();
+
+        assertEquals(user.getId(), userService.authenticate("hash-user", "correct horse").join().getId());
+        assertNull(userService.authenticate("hash-user", "wrong").join());
+        assertNull(userService.authenticate("nobody", "correct horse").join());
+    }
+
+    @Test
+    void continuationsLeaveTheHashingPool() {
+        userService.createUser("pool-user", "pool-user@example.com", "secret").join();
+
+        String thread = userService.authenticate("pool-user", "secret")
+            .thenApply(user -> Thread.currentThread().getName())
+            .join();
+
+        assertFalse(thread.startsWith("password-hashing"), thread);
+    }
+
+    @Test
+    void aFullQueueRejectsAndLoginAnswers503() throws Exception {
+        // a first request initializes the dispatcher, which would outlast the saturated queue
+        mockMvc.perform(get("/api/users/leaderboard")).andExpect(status().isOk());
+        // fillers hold the pool until released, so a finished hash cannot free the queue slot
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).encode("filler");
+        List<CompletableFuture<String>> accepted = new ArrayList<>();
+        try {
+            assertTrue(saturate(accepted, running));
+            assertTrue(passwordHashingService.retryAfterSeconds() >= 1);
+
+            MvcResult login = mockMvc.perform(post("/api/auth/login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"username\":\"someone\",\"password\":\"secret\"}"))
+                .andReturn();
+            mockMvc.perform(asyncDispatch(login))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        } finally {
+            // leave the pool idle for the other tests
+            release.countDown();
+            for (CompletableFuture<String> hash : accepted) {
+                assertNotNull(hash.join());
+            }
+        }
+    }
+
+    /**
+     * Submits hashes until one is refused; with one thread and one queue slot that takes
+     * the third. The first must be running before the rest are sent, or an idle worker that
+     * has not yet taken it off the queue makes the second look refused.
+     */
+    private boolean saturate(List<CompletableFuture<String>> accepted, CountDownLatch running) throws InterruptedException {
+        accepted.add(passwordHashingService.encode("filler"));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            try {
+                accepted.add(passwordHashingService.encode("filler"));
+            } catch (RejectedExecutionException e) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,86 @@
+package com.insight.backend.service;
+
+import com.insight.backend.model.User;
+import com.insight.backend.model.VoteType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:post-counter-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-"
+})
+class PostCounterServiceTest {
+
+    @Autowired
+    private PostCounterService postCounterService;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User newUser(String name) {
+        return userService.createUser(name, name + "@example.com", "password").join();
+    }
+
+    private Map<String, Object> counters(Long postId) {
+        return jdbcTemplate.queryForMap("SELECT comment_count, up_count, down_count FROM posts WHERE id = ?", postId);
+    }
+
+    private Long postWithActivity(String prefix) {
+        User author = newUser(prefix + "-author");
+        Long postId = postService.createPost("title", "content", author.getId(), author.getUsername(),
+            Collections.<String>emptyList()).getId();
+        commentService.createComment("comment", postId, author.getId(), author.getUsername(), null);
+        postService.voteOnPost(postId, newUser(prefix + "-up").getId(), VoteType.UP);
+        postService.voteOnPost(postId, newUser(prefix + "-down").getId(), VoteType.DOWN);
+        return postId;
+    }
+
+    private void assertCounts(Long postId, int comments, int up, int down) {
+        Map<String, Object> row = counters(postId);
+        assertEquals(comments, ((Number) row.get("COMMENT_COUNT")).intValue());
+        assertEquals(up, ((Number) row.get("UP_COUNT")).intValue());
+        assertEquals(down, ((Number) row.get("DOWN_COUNT")).intValue());
+    }
+
+    @Test
+    void pendingDeltasAreNotReportedAsDrift() {
+        Long postId = postWithActivity("pending");
+        postCounterService.reconcile();
+
+        // these are still in memory when the pass starts, which flushes them before recounting
+        commentService.createComment("another", postId, newUser("pending-late").getId(), "pending-late", null);
+        assertEquals(0, postCounterService.reconcile());
+        assertCounts(postId, 2, 1, 1);
+    }
+
+    @Test
+    void reconcileRepairsOnlyTheDriftedPosts() {
+        Long drifted = postWithActivity("drifted");
+        Long intact = postWithActivity("intact");
+        postCounterService.reconcile();
+        // a lost flush on one counter, a doubled one on another
+        jdbcTemplate.update("UPDATE posts SET comment_count = 0, up_count = 2 WHERE id = ?", drifted);
+
+        assertEquals(1, postCounterService.reconcile());
+
+        assertCounts(drifted, 1, 1, 1);
+        assertCounts(intact, 1, 1, 1);
+        assertEquals(0, postCounterService.reconcile());
+    }
+}
@@ -0,0 +1,158 @@
+package com.insight.backend.service;
+
+import com.insight.backend.dto.VoteResult;
+import com.insight.backend.model.User;
+import com.insight.backend.model.VoteType;
+import com.insight.backend.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:vote-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-"
+})
+class VoteServiceTest {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private VoteScoreAggregator voteScoreAggregator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private VoteService voteService;
+
+    @SpyBean
+    private PostRepository postRepository;
+
+    private User newUser(String name) {
+        return userService.createUser(name, name + "@example.com", "password").join();
+    }
+
+    private Long newPost(String authorName) {
+        User author = newUser(authorName);
+        return postService.createPost("title", "content", author.getId(), author.getUsername(), Collections.<String>emptyList()).getId();
+    }
+
+    private int storedScore(Long postId) {
+        voteScoreAggregator.flush();
+        return jdbcTemplate.queryForObject("SELECT score FROM posts WHERE id = ?", Integer.class, postId);
+    }
+
+    @Test
+    void votesToggleSwitchAndReturnTheBufferedScore() {
+        Long postId = newPost("toggle-author");
+        User first = newUser("toggle-first");
+        User second = newUser("toggle-second");
+
+        assertEquals(1, postService.voteOnPost(postId, first.getId(), VoteType.UP).getScore());
+        assertEquals(2, postService.voteOnPost(postId, second.getId(), VoteType.UP).getScore());
+
+        VoteResult switched = postService.voteOnPost(postId, second.getId(), VoteType.DOWN);
+        assertEquals(VoteType.DOWN, switched.getUserVote());
+        assertEquals(-2, switched.getScoreChange());
+        assertEquals(0, switched.getScore());
+
+        VoteResult removed = postService.voteOnPost(postId, first.getId(), VoteType.UP);
+        assertNull(removed.getUserVote());
+        assertEquals(-1, removed.getScore());
+
+        assertEquals(-1, storedScore(postId));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM votes WHERE post_id = ?", Integer.class, postId));
+    }
+
+    @Test
+    void theReturnedScoreSurvivesAFlushBetweenVotes() {
+        Long postId = newPost("flush-author");
+        List<User> voters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            voters.add(newUser("flush-voter-" + i));
+        }
+
+        int score = 0;
+        for (User voter : voters) {
+            score = postService.voteOnPost(postId, voter.getId(), VoteType.UP).getScore();
+            voteScoreAggregator.flush();
+        }
+
+        assertEquals(4, score);
+        assertEquals(4, storedScore(postId));
+    }
+
+    @Test
+    void concurrentVotesBySameUserLeaveOneConsistentVote() throws Exception {
+        Long postId = newPost("race-author");
+        User voter = newUser("race-voter");
+        int threads = 8;
+        // the first two votes both read "no vote yet", so both try to insert and one must retry
+        CyclicBarrier bothRead = new CyclicBarrier(2);
+        AtomicInteger reads = new AtomicInteger();
+        // repositories are interface proxies, so the spy reaches the real one through its default answer
+        Answer<?> real = mockingDetails(postRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            Object target = real.answer(invocation);
+            if (reads.incrementAndGet() <= 2) {
+                bothRead.await(10, TimeUnit.SECONDS);
+            }
+            return target;
+        }).when(postRepository).findVoteTarget(eq(postId), eq(voter.getId()));
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> votes = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                votes.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        return postService.voteOnPost(postId, voter.getId(), VoteType.UP);
+                    } catch (RuntimeException e) {
+                        // a vote that lost every retry changed nothing
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> vote : votes) {
+                vote.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // the MERGE does not stop the second insert, the unique key and the retry do
+        verify(voteService, atLeast(threads + 1)).applyVote(eq(postId), eq(voter.getId()), any());
+        assertTrue(reads.get() > threads);
+        Integer rows = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM votes WHERE post_id = ? AND user_id = ?", Integer.class, postId, voter.getId());
+        assertEquals(rows, storedScore(postId));
+    }
+}
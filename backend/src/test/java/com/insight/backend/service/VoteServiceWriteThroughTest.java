@@ -0,0 +1,65 @@
+package com.insight.backend.service;
+
+import com.insight.backend.model.User;
+import com.insight.backend.model.VoteType;
+import com.insight.backend.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:vote-write-through-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "reset.cron=-",
+    "votes.write-behind.enabled=false"
+})
+class VoteServiceWriteThroughTest {
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private PostRepository postRepository;
+
+    private User newUser(String name) {
+        return userService.createUser(name, name + "@example.com", "password").join();
+    }
+
+    @Test
+    void theReturnedScoreIncludesAVoteCommittedAfterTheRead() throws Exception {
+        User author = newUser("through-author");
+        Long postId = postService.createPost("title", "content", author.getId(), author.getUsername(),
+            Collections.<String>emptyList()).getId();
+        User slow = newUser("through-slow");
+        User fast = newUser("through-fast");
+
+        // another user's vote commits between the slow vote's read and its score update
+        Answer<?> real = mockingDetails(postRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            Object target = real.answer(invocation);
+            CompletableFuture.runAsync(() -> postService.voteOnPost(postId, fast.getId(), VoteType.UP))
+                .get(10, TimeUnit.SECONDS);
+            return target;
+        }).when(postRepository).findVoteTarget(eq(postId), eq(slow.getId()));
+
+        assertEquals(2, postService.voteOnPost(postId, slow.getId(), VoteType.UP).getScore());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT score FROM posts WHERE id = ?", Integer.class, postId));
+    }
+}